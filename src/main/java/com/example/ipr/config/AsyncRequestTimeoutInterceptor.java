@@ -0,0 +1,37 @@
+package com.example.ipr.config;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Задает время ожидания асинхронной обработки для отдельного запроса, не меняя общего значения по умолчанию.
+ * Обработчик, который отвечает потоком дольше обычного, вызывает {@link #overrideTimeout} до возврата ответа;
+ * перехватчик применяет значение перед запуском асинхронной обработки.
+ */
+public class AsyncRequestTimeoutInterceptor implements CallableProcessingInterceptor {
+
+    private static final String TIMEOUT_ATTRIBUTE = AsyncRequestTimeoutInterceptor.class.getName() + ".timeout";
+
+    /**
+     * Задает время ожидания асинхронной обработки текущего запроса.
+     *
+     * @param timeoutMillis Время ожидания в миллисекундах
+     */
+    public static void overrideTimeout(long timeoutMillis) {
+        RequestContextHolder.currentRequestAttributes()
+                .setAttribute(TIMEOUT_ATTRIBUTE, timeoutMillis, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    @Override
+    public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+        if (request instanceof AsyncWebRequest asyncRequest
+                && request.getAttribute(TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST) instanceof Long timeoutMillis) {
+            asyncRequest.setTimeout(timeoutMillis);
+        }
+    }
+}
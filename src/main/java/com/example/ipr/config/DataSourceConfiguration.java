@@ -0,0 +1,65 @@
+package com.example.ipr.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.liquibase.LiquibaseDataSource;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Источники данных: основная база из spring.datasource и реплики для чтения из ipr.datasource.replica.
+ * Если реплики не заданы, все запросы идут на основную базу.
+ */
+@Configuration
+public class DataSourceConfiguration {
+
+    @Bean
+    @LiquibaseDataSource
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRoutingDataSource replicaRoutingDataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                                             DataSourceProperties properties,
+                                                             @Value("${ipr.datasource.replica.urls}") String urls,
+                                                             @Value("${ipr.datasource.replica.pool-size}") int poolSize,
+                                                             @Value("${ipr.datasource.replica.max-lag-ms}") long maxLagMillis,
+                                                             @Value("${ipr.datasource.replica.lag-check-interval-ms}") long lagCheckIntervalMillis,
+                                                             @Value("${ipr.datasource.replica.lag-check-stale-ms}") long lagCheckStaleMillis,
+                                                             @Value("${ipr.datasource.replica.read-your-writes-ms}") long readYourWritesMillis) {
+        List<DataSource> replicas = new ArrayList<>();
+        Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .forEach(url -> {
+                    HikariDataSource replica = new HikariDataSource();
+                    replica.setPoolName("ipr-replica-" + replicas.size());
+                    replica.setJdbcUrl(url);
+                    replica.setUsername(properties.determineUsername());
+                    replica.setPassword(properties.determinePassword());
+                    replica.setMaximumPoolSize(poolSize);
+                    replica.setReadOnly(true);
+                    replicas.add(replica);
+                });
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLagMillis, lagCheckIntervalMillis,
+                lagCheckStaleMillis, readYourWritesMillis);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ReplicaRoutingDataSource replicaRoutingDataSource) {
+        return new LazyConnectionDataSourceProxy(replicaRoutingDataSource);
+    }
+}
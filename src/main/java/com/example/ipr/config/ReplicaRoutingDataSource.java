@@ -0,0 +1,210 @@
+package com.example.ipr.config;
+
+import com.example.ipr.persist.entities.UserEntity;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Источник данных, направляющий read-only транзакции на реплики, а все остальное — на основную базу.
+ * Реплика получает чтения, только пока ее отставание не превышает max-lag-ms; если подходящих реплик нет,
+ * чтение выполняется на основной базе. Пользователь, который недавно выполнял запись, читает с основной базы
+ * в течение read-your-writes-ms, чтобы видеть свои изменения. Чтения, которым нужны только что записанные
+ * данные независимо от пользователя, выполняются через {@link #onPrimary}.
+ * Ключ выбирается при получении соединения, поэтому источник оборачивается в
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}: соединение берется при первом
+ * запросе, когда признак read-only транзакции уже установлен.
+ * <p>
+ * Отставание проверяется в собственном потоке, независимо от общего планировщика задач. Если последняя
+ * успешная проверка старше lag-check-stale-ms (например, проверка зависла), чтения идут на основную базу.
+ * При закрытии источника останавливается поток проверки и закрываются пулы соединений реплик.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractRoutingDataSource implements AutoCloseable {
+
+    private static final String PRIMARY = "primary";
+
+    private static final String REPLICA_LAG_QUERY = """
+            SELECT CASE
+                       WHEN NOT pg_is_in_recovery() THEN 0
+                       WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                       ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 0)
+                       END
+            """;
+
+    private static final ThreadLocal<Integer> PRIMARY_FORCED = ThreadLocal.withInitial(() -> 0);
+
+    private final Map<String, JdbcTemplate> replicas = new HashMap<>();
+    private final List<DataSource> replicaDataSources;
+    private final AtomicInteger nextReplica = new AtomicInteger();
+    private final Cache<UUID, Boolean> recentWriters;
+    private final long maxLagMillis;
+    private final long lagCheckIntervalMillis;
+    private final long lagCheckStaleNanos;
+
+    private volatile ReplicaSnapshot snapshot = new ReplicaSnapshot(List.of(), System.nanoTime());
+    private ScheduledExecutorService lagChecker;
+
+    /**
+     * @param primary                Основная база
+     * @param replicas               Реплики
+     * @param maxLagMillis           Максимальное отставание реплики, при котором она получает чтения
+     * @param lagCheckIntervalMillis Пауза между проверками отставания реплик
+     * @param lagCheckStaleMillis    Через сколько после последней успешной проверки реплики перестают получать чтения
+     * @param readYourWritesMillis   Сколько пользователь читает с основной базы после своей записи; 0 — не закреплять
+     */
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, long maxLagMillis,
+                                    long lagCheckIntervalMillis, long lagCheckStaleMillis, long readYourWritesMillis) {
+        Map<Object, Object> targets = new HashMap<>();
+        targets.put(PRIMARY, primary);
+        int queryTimeoutSeconds = (int) Math.max(1, TimeUnit.MILLISECONDS.toSeconds(lagCheckStaleMillis));
+        for (int i = 0; i < replicas.size(); i++) {
+            String key = "replica-" + i;
+            targets.put(key, replicas.get(i));
+            JdbcTemplate jdbcTemplate = new JdbcTemplate(replicas.get(i));
+            jdbcTemplate.setQueryTimeout(queryTimeoutSeconds);
+            this.replicas.put(key, jdbcTemplate);
+        }
+        setTargetDataSources(targets);
+        setDefaultTargetDataSource(primary);
+        this.replicaDataSources = List.copyOf(replicas);
+        this.maxLagMillis = maxLagMillis;
+        this.lagCheckIntervalMillis = lagCheckIntervalMillis;
+        this.lagCheckStaleNanos = TimeUnit.MILLISECONDS.toNanos(lagCheckStaleMillis);
+        this.recentWriters = readYourWritesMillis > 0
+                ? Caffeine.newBuilder().expireAfterWrite(Duration.ofMillis(readYourWritesMillis)).maximumSize(100_000).build()
+                : null;
+    }
+
+    /**
+     * Запускает проверку отставания реплик в собственном потоке.
+     */
+    @Override
+    public void afterPropertiesSet() {
+        super.afterPropertiesSet();
+        if (replicas.isEmpty()) {
+            return;
+        }
+        lagChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-lag-check");
+            thread.setDaemon(true);
+            return thread;
+        });
+        lagChecker.scheduleWithFixedDelay(this::refreshReplicaLag, 0, lagCheckIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает проверку отставания и закрывает пулы соединений реплик.
+     */
+    @Override
+    public void close() {
+        if (Objects.nonNull(lagChecker)) {
+            lagChecker.shutdownNow();
+        }
+        for (DataSource replica : replicaDataSources) {
+            if (replica instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Не удалось закрыть пул соединений реплики: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Выполняет действие так, что все его транзакции, включая read-only, идут на основную базу.
+     * Нужно для чтений, которые должны видеть только что зафиксированные записи, например вход сразу после регистрации.
+     */
+    public static <T> T onPrimary(Supplier<T> action) {
+        PRIMARY_FORCED.set(PRIMARY_FORCED.get() + 1);
+        try {
+            return action.get();
+        } finally {
+            int depth = PRIMARY_FORCED.get() - 1;
+            if (depth == 0) {
+                PRIMARY_FORCED.remove();
+            } else {
+                PRIMARY_FORCED.set(depth);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        UUID userId = Objects.isNull(recentWriters) ? null : currentUserId();
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            if (Objects.nonNull(userId) && TransactionSynchronizationManager.isActualTransactionActive()) {
+                recentWriters.put(userId, Boolean.TRUE);
+            }
+            return PRIMARY;
+        }
+        if (PRIMARY_FORCED.get() > 0 || (Objects.nonNull(userId) && Objects.nonNull(recentWriters.getIfPresent(userId)))) {
+            return PRIMARY;
+        }
+
+        ReplicaSnapshot current = snapshot;
+        List<String> candidates = current.replicas();
+        if (candidates.isEmpty() || System.nanoTime() - current.checkedAtNanos() > lagCheckStaleNanos) {
+            return PRIMARY;
+        }
+        return candidates.get(Math.floorMod(nextReplica.getAndIncrement(), candidates.size()));
+    }
+
+    /**
+     * Измеряет отставание реплик и оставляет для чтения только те, что укладываются в max-lag-ms.
+     * Недоступная реплика исключается до следующей успешной проверки.
+     * Время проверки отсчитывается от ее начала, чтобы долгий опрос реплик не продлевал доверие к результату.
+     */
+    void refreshReplicaLag() {
+        long startedAtNanos = System.nanoTime();
+        List<String> available = new ArrayList<>(replicas.size());
+        replicas.forEach((key, jdbcTemplate) -> {
+            try {
+                Double lagMillis = jdbcTemplate.queryForObject(REPLICA_LAG_QUERY, Double.class);
+                if (Objects.nonNull(lagMillis) && lagMillis <= maxLagMillis) {
+                    available.add(key);
+                } else {
+                    log.warn("Реплика {} отстает на {} мс и не получает чтения", key, lagMillis);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Реплика {} недоступна: {}", key, e.getMessage());
+            }
+        });
+        available.sort(null);
+        snapshot = new ReplicaSnapshot(List.copyOf(available), startedAtNanos);
+    }
+
+    private UUID currentUserId() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (Objects.nonNull(authentication) && authentication.getPrincipal() instanceof UserEntity user) {
+            return user.getId();
+        }
+        return null;
+    }
+
+    /**
+     * Реплики, прошедшие проверку отставания, и время начала этой проверки.
+     */
+    private record ReplicaSnapshot(List<String> replicas, long checkedAtNanos) {
+    }
+}
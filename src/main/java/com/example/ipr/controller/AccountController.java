@@ -3,6 +3,7 @@ package com.example.ipr.controller;
 import com.example.ipr.domain.CreateAccountDto;
 import com.example.ipr.exceptions.ErrorDto;
 import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.entities.UserEntity;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
@@ -10,14 +11,17 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 /**
  * Контроллер для управления банковскими счетами.
- * Позволяет выполнять операции, связанные с созданием счетов.
+ * Позволяет выполнять операции, связанные с созданием счетов, и следить за изменением их балансов.
  */
 public interface AccountController {
 
@@ -36,4 +40,21 @@ public interface AccountController {
     })
     @PostMapping(value = "/create", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
     ResponseEntity<AccountEntity> createAccount(@Valid @RequestBody @NotNull CreateAccountDto createAccountDto);
+
+    /**
+     * Подписывает пользователя на изменения балансов его счетов.
+     * Каждое пополнение и перевод по счету после фиксации приходит событием {@code balance}.
+     * Если клиент не успевает читать события, поток закрывается событием {@code closed}, и клиенту нужно переподключиться.
+     *
+     * @param user Аутентифицированный пользователь
+     * @return Поток Server-Sent Events
+     */
+    @ApiOperation(value = "Лента изменений балансов счетов", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
+    })
+    @GetMapping(value = "/feed", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    SseEmitter subscribeBalanceFeed(@AuthenticationPrincipal UserEntity user);
 }
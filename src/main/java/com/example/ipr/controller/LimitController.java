@@ -1,8 +1,11 @@
 package com.example.ipr.controller;
 
+import com.example.ipr.domain.CheckTransferBatchRequestDto;
 import com.example.ipr.domain.CheckTransferDto;
 import com.example.ipr.domain.CheckTransferResponse;
+import com.example.ipr.domain.LimitRuleDto;
 import com.example.ipr.domain.SetLimitDto;
+import com.example.ipr.domain.SetLimitRulesDto;
 import com.example.ipr.exceptions.ErrorDto;
 import com.example.ipr.persist.entities.LimitEntity;
 import io.swagger.annotations.ApiOperation;
@@ -12,14 +15,19 @@ import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 
+import java.util.List;
+import java.util.UUID;
+
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 
 /**
  * Контроллер для управления лимитами пользователей.
- * Позволяет устанавливать лимиты на счета и проверять возможность перевода с учетом установленного лимита.
+ * Позволяет устанавливать лимиты и правила лимитов на счета и проверять возможность перевода с их учетом.
  */
 public interface LimitController {
 
@@ -54,4 +62,52 @@ public interface LimitController {
     })
     @PostMapping(value = "/check-transfer", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
     ResponseEntity<CheckTransferResponse> checkTransfer(@Valid @RequestBody @NotNull CheckTransferDto request);
+
+    /**
+     * Проверяет лимиты для нескольких переводов одним запросом к базе данных.
+     *
+     * @param request DTO-объект со списком пар из ID счета и суммы перевода.
+     * @return Объект {@link ResponseEntity}, содержащий результаты проверки {@link CheckTransferResponse}
+     * в порядке следования пар в запросе.
+     */
+    @ApiOperation(value = "Пакетная проверка лимитов перед переводом", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 400, message = "Bad request", response = ErrorDto.class),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
+    })
+    @PostMapping(value = "/check-transfer/batch", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<List<CheckTransferResponse>> checkTransferBatch(@Valid @RequestBody @NotNull CheckTransferBatchRequestDto request);
+
+    /**
+     * Заменяет правила лимитов счета: пороги на операцию, день и месяц с комиссией или запретом перевода.
+     *
+     * @param request DTO-объект с ID счета и новым набором правил.
+     * @return Объект {@link ResponseEntity}, содержащий сохраненные правила {@link LimitRuleDto}.
+     */
+    @ApiOperation(value = "Установка правил лимитов", produces = APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 400, message = "Bad request", response = ErrorDto.class),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
+    })
+    @PostMapping(value = "/rules", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<List<LimitRuleDto>> setRules(@Valid @RequestBody @NotNull SetLimitRulesDto request);
+
+    /**
+     * Возвращает правила лимитов счета.
+     *
+     * @param accountId ID счета.
+     * @return Объект {@link ResponseEntity}, содержащий правила {@link LimitRuleDto}.
+     */
+    @ApiOperation(value = "Получение правил лимитов", produces = APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
+    })
+    @GetMapping(value = "/rules/{accountId}", produces = APPLICATION_JSON_VALUE)
+    ResponseEntity<List<LimitRuleDto>> getRules(@PathVariable UUID accountId);
 }
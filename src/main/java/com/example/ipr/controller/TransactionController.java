@@ -1,21 +1,33 @@
 package com.example.ipr.controller;
 
 import com.example.ipr.domain.DepositRequestDto;
-import com.example.ipr.domain.ExpenseTransactionDto;
+import com.example.ipr.domain.SpendingSummaryDto;
+import com.example.ipr.domain.TransactionPageDto;
+import com.example.ipr.domain.TransferBatchRequestDto;
+import com.example.ipr.domain.TransferBatchResultDto;
 import com.example.ipr.domain.TransferRequestDto;
+import com.example.ipr.enums.StatementFormat;
+import com.example.ipr.enums.SummaryPeriod;
 import com.example.ipr.exceptions.ErrorDto;
 import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.entities.UserEntity;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiResponse;
 import io.swagger.annotations.ApiResponses;
 import jakarta.validation.Valid;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -26,10 +38,17 @@ import java.util.UUID;
 public interface TransactionController {
 
     /**
-     * Получает список всех расходных операций для указанного счета.
+     * Заголовок с ключом идемпотентности: повторный запрос с тем же ключом получает ответ первого запроса.
+     */
+    String IDEMPOTENCY_KEY_HEADER = "Idempotency-Key";
+
+    /**
+     * Получает страницу расходных операций для указанного счета, от новых к старым.
      *
      * @param accountId UUID счета, для которого запрашиваются расходные операции.
-     * @return Список {@link ExpenseTransactionDto}, содержащий данные о расходных транзакциях.
+     * @param cursor    Курсор следующей страницы из предыдущего ответа; без него возвращается первая страница.
+     * @param limit     Размер страницы; ограничен максимальным размером.
+     * @return {@link TransactionPageDto} с расходными транзакциями и курсором следующей страницы.
      */
     @ApiOperation(value = "Получение списка расходных операций", produces = MediaType.APPLICATION_JSON_VALUE)
     @ApiResponses(value = {
@@ -39,13 +58,17 @@ public interface TransactionController {
             @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
     })
     @GetMapping(value = "/expenses/{accountId}", produces = MediaType.APPLICATION_JSON_VALUE)
-    ResponseEntity<List<ExpenseTransactionDto>> getExpenseTransactions(@PathVariable UUID accountId);
+    ResponseEntity<TransactionPageDto> getExpenseTransactions(@PathVariable UUID accountId,
+                                                              @RequestParam(required = false) String cursor,
+                                                              @RequestParam(required = false) Integer limit);
 
     /**
-     * Получает список транзакций, сумма которых превысила установленный лимит.
+     * Получает страницу транзакций, сумма которых превысила установленный лимит, от новых к старым.
      *
      * @param accountId UUID счета, для которого запрашиваются транзакции, превысившие лимит.
-     * @return Список {@link ExpenseTransactionDto}, содержащий данные о транзакциях с превышенным лимитом.
+     * @param cursor    Курсор следующей страницы из предыдущего ответа; без него возвращается первая страница.
+     * @param limit     Размер страницы; ограничен максимальным размером.
+     * @return {@link TransactionPageDto} с транзакциями с превышенным лимитом и курсором следующей страницы.
      */
     @ApiOperation(value = "Получение транзакций, превысивших лимит", produces = MediaType.APPLICATION_JSON_VALUE)
     @ApiResponses(value = {
@@ -55,12 +78,60 @@ public interface TransactionController {
             @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
     })
     @GetMapping(value = "/exceeded-limit/{accountId}", produces = MediaType.APPLICATION_JSON_VALUE)
-    ResponseEntity<List<ExpenseTransactionDto>> getExceededLimitTransactions(@PathVariable UUID accountId);
+    ResponseEntity<TransactionPageDto> getExceededLimitTransactions(@PathVariable UUID accountId,
+                                                                    @RequestParam(required = false) String cursor,
+                                                                    @RequestParam(required = false) Integer limit);
+
+    /**
+     * Выгружает выписку по счету за период потоком, без ограничения на число операций.
+     *
+     * @param accountId UUID счета.
+     * @param from      Первый день периода включительно; без него — с начала истории.
+     * @param to        Последний день периода включительно; без него — по текущий момент.
+     * @param format    Формат выгрузки: NDJSON (по умолчанию) или CSV.
+     * @return Поток строк выписки, по одной операции на строку, в порядке проведения.
+     */
+    @ApiOperation(value = "Выгрузка выписки по счету", produces = "application/x-ndjson, text/csv")
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 400, message = "Bad request", response = ErrorDto.class),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
+    })
+    @GetMapping(value = "/statement/{accountId}")
+    ResponseEntity<StreamingResponseBody> exportStatement(@PathVariable UUID accountId,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                          @RequestParam(defaultValue = "NDJSON") StatementFormat format);
+
+    /**
+     * Возвращает сводку движения средств счета за период по дням или месяцам и итоги периода по валютам.
+     *
+     * @param accountId UUID счета.
+     * @param from      Первый день периода включительно.
+     * @param to        Последний день периода включительно.
+     * @param period    Шаг разбиения: DAY (по умолчанию) или MONTH.
+     * @return {@link SpendingSummaryDto} с суммами переводов, комиссий, поступлений и пополнений.
+     */
+    @ApiOperation(value = "Сводка движения средств по счету", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 400, message = "Bad request", response = ErrorDto.class),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
+    })
+    @GetMapping(value = "/spending-summary/{accountId}", produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<SpendingSummaryDto> getSpendingSummary(@PathVariable UUID accountId,
+                                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                          @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                          @RequestParam(defaultValue = "DAY") SummaryPeriod period);
 
     /**
      * Пополняет баланс указанного счета.
      *
-     * @param requestDto DTO-объект, содержащий данные о пополнении счета (ID пользователя, ID счета, сумма пополнения).
+     * @param user           Аутентифицированный пользователь; ключ идемпотентности действует в пределах его запросов.
+     * @param idempotencyKey Необязательный ключ идемпотентности.
+     * @param requestDto     DTO-объект, содержащий данные о пополнении счета (ID пользователя, ID счета, сумма пополнения).
      * @return Объект {@link ResponseEntity}, содержащий обновленный {@link AccountEntity}.
      */
     @ApiOperation(value = "Пополнение счета", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -71,12 +142,16 @@ public interface TransactionController {
             @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
     })
     @PostMapping(value = "/deposit", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    ResponseEntity<AccountEntity> deposit(@RequestBody @Valid DepositRequestDto requestDto);
+    ResponseEntity<AccountEntity> deposit(@AuthenticationPrincipal UserEntity user,
+                                          @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                          @RequestBody @Valid DepositRequestDto requestDto);
 
     /**
      * Выполняет перевод денежных средств между счетами.
      *
-     * @param requestDto DTO-объект, содержащий данные о переводе (ID отправителя, ID счета отправителя, ID счета получателя, сумма перевода).
+     * @param user           Аутентифицированный пользователь; ключ идемпотентности действует в пределах его запросов.
+     * @param idempotencyKey Необязательный ключ идемпотентности.
+     * @param requestDto     DTO-объект, содержащий данные о переводе (ID отправителя, ID счета отправителя, ID счета получателя, сумма перевода).
      * @return Объект {@link ResponseEntity} без содержимого в случае успешного выполнения операции.
      */
     @ApiOperation(value = "Перевод между счетами", produces = MediaType.APPLICATION_JSON_VALUE)
@@ -87,5 +162,23 @@ public interface TransactionController {
             @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
     })
     @PostMapping(value = "/transfer", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    ResponseEntity<Void> transfer(@RequestBody @Valid TransferRequestDto requestDto);
+    ResponseEntity<Void> transfer(@AuthenticationPrincipal UserEntity user,
+                                  @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                  @RequestBody @Valid TransferRequestDto requestDto);
+
+    /**
+     * Выполняет пакет переводов между счетами в одной транзакции.
+     *
+     * @param requestDto DTO-объект со списком переводов.
+     * @return Список {@link TransferBatchResultDto} с результатом по каждому переводу в порядке следования в запросе.
+     */
+    @ApiOperation(value = "Пакетный перевод между счетами", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "OK"),
+            @ApiResponse(code = 400, message = "Bad request", response = ErrorDto.class),
+            @ApiResponse(code = 401, message = "Unauthorized"),
+            @ApiResponse(code = 500, message = "Internal server error", response = ErrorDto.class)
+    })
+    @PostMapping(value = "/transfer/batch", consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
+    ResponseEntity<List<TransferBatchResultDto>> transferBatch(@RequestBody @Valid TransferBatchRequestDto requestDto);
 }
@@ -3,11 +3,14 @@ package com.example.ipr.controller.impl;
 import com.example.ipr.controller.AccountController;
 import com.example.ipr.domain.CreateAccountDto;
 import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.entities.UserEntity;
 import com.example.ipr.service.AccountService;
+import com.example.ipr.service.BalanceFeedService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 @RestController
 @RequiredArgsConstructor
@@ -15,6 +18,7 @@ import org.springframework.web.bind.annotation.RestController;
 public class AccountControllerImpl implements AccountController {
 
     private final AccountService accountService;
+    private final BalanceFeedService balanceFeedService;
 
     @Override
     public ResponseEntity<AccountEntity> createAccount(CreateAccountDto createAccountDto) {
@@ -23,4 +27,9 @@ public class AccountControllerImpl implements AccountController {
                 createAccountDto.getCurrencyId());
         return ResponseEntity.ok(account);
     }
+
+    @Override
+    public SseEmitter subscribeBalanceFeed(UserEntity user) {
+        return balanceFeedService.subscribe(user.getId());
+    }
 }
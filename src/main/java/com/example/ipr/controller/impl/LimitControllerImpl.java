@@ -1,9 +1,12 @@
 package com.example.ipr.controller.impl;
 
 import com.example.ipr.controller.LimitController;
+import com.example.ipr.domain.CheckTransferBatchRequestDto;
 import com.example.ipr.domain.CheckTransferDto;
 import com.example.ipr.domain.CheckTransferResponse;
+import com.example.ipr.domain.LimitRuleDto;
 import com.example.ipr.domain.SetLimitDto;
+import com.example.ipr.domain.SetLimitRulesDto;
 import com.example.ipr.persist.entities.LimitEntity;
 import com.example.ipr.service.LimitService;
 import lombok.RequiredArgsConstructor;
@@ -11,6 +14,9 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.util.List;
+import java.util.UUID;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/api/v1/limit")
@@ -23,7 +29,8 @@ public class LimitControllerImpl implements LimitController {
         LimitEntity limit = limitService.setLimit(
                 setLimitDto.getAccountId(),
                 setLimitDto.getLimitAmount(),
-                setLimitDto.getCurrencyId()
+                setLimitDto.getCurrencyId(),
+                setLimitDto.getWindowDays()
         );
         return ResponseEntity.ok(limit);
     }
@@ -36,4 +43,19 @@ public class LimitControllerImpl implements LimitController {
         );
         return ResponseEntity.ok(response);
     }
+
+    @Override
+    public ResponseEntity<List<CheckTransferResponse>> checkTransferBatch(CheckTransferBatchRequestDto request) {
+        return ResponseEntity.ok(limitService.checkTransferLimits(request.getChecks()));
+    }
+
+    @Override
+    public ResponseEntity<List<LimitRuleDto>> setRules(SetLimitRulesDto request) {
+        return ResponseEntity.ok(limitService.setRules(request.getAccountId(), request.getRules()));
+    }
+
+    @Override
+    public ResponseEntity<List<LimitRuleDto>> getRules(UUID accountId) {
+        return ResponseEntity.ok(limitService.getRules(accountId));
+    }
 }
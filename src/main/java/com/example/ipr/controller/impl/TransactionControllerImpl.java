@@ -1,19 +1,40 @@
 package com.example.ipr.controller.impl;
 
+import com.example.ipr.config.AsyncRequestTimeoutInterceptor;
 import com.example.ipr.controller.TransactionController;
 import com.example.ipr.domain.DepositRequestDto;
-import com.example.ipr.domain.ExpenseTransactionDto;
+import com.example.ipr.domain.SpendingSummaryDto;
+import com.example.ipr.domain.TransactionPageDto;
+import com.example.ipr.domain.TransferBatchRequestDto;
+import com.example.ipr.domain.TransferBatchResultDto;
 import com.example.ipr.domain.TransferRequestDto;
+import com.example.ipr.enums.IdempotentOperation;
+import com.example.ipr.enums.StatementFormat;
+import com.example.ipr.enums.SummaryPeriod;
 import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.entities.UserEntity;
+import com.example.ipr.service.DailySpendService;
+import com.example.ipr.service.IdempotencyService;
+import com.example.ipr.service.StatementExportService;
 import com.example.ipr.service.TransactionService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -23,36 +44,85 @@ import java.util.UUID;
 public class TransactionControllerImpl implements TransactionController {
 
     private final TransactionService transactionService;
+    private final IdempotencyService idempotencyService;
+    private final StatementExportService statementExportService;
+    private final DailySpendService dailySpendService;
+
+    @Value("${ipr.statement.timeout-ms}")
+    private long statementTimeoutMillis;
 
     @Override
-    public ResponseEntity<List<ExpenseTransactionDto>> getExpenseTransactions(@PathVariable UUID accountId) {
-        List<ExpenseTransactionDto> expenses = transactionService.getExpenseTransactions(accountId);
+    public ResponseEntity<TransactionPageDto> getExpenseTransactions(@PathVariable UUID accountId,
+                                                                     @RequestParam(required = false) String cursor,
+                                                                     @RequestParam(required = false) Integer limit) {
+        TransactionPageDto expenses = transactionService.getExpenseTransactions(accountId, cursor, limit);
         return ResponseEntity.ok(expenses);
     }
 
     @Override
-    public ResponseEntity<List<ExpenseTransactionDto>> getExceededLimitTransactions(@PathVariable UUID accountId) {
-        List<ExpenseTransactionDto> transactions = transactionService.getExceededLimitTransactions(accountId);
+    public ResponseEntity<TransactionPageDto> getExceededLimitTransactions(@PathVariable UUID accountId,
+                                                                           @RequestParam(required = false) String cursor,
+                                                                           @RequestParam(required = false) Integer limit) {
+        TransactionPageDto transactions = transactionService.getExceededLimitTransactions(accountId, cursor, limit);
         return ResponseEntity.ok(transactions);
     }
 
     @Override
-    public ResponseEntity<AccountEntity> deposit(@RequestBody @Valid DepositRequestDto requestDto) {
-        AccountEntity updatedAccount = transactionService.deposit(
-                requestDto.getUserId(),
-                requestDto.getAccountId(),
-                requestDto.getAmount());
+    public ResponseEntity<StreamingResponseBody> exportStatement(@PathVariable UUID accountId,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                 @RequestParam(defaultValue = "NDJSON") StatementFormat format) {
+        StreamingResponseBody body = statementExportService.export(accountId, from, to, format);
+        AsyncRequestTimeoutInterceptor.overrideTimeout(statementTimeoutMillis);
+        MediaType mediaType = format == StatementFormat.CSV
+                ? new MediaType("text", "csv", StandardCharsets.UTF_8)
+                : new MediaType("application", "x-ndjson", StandardCharsets.UTF_8);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"statement-" + accountId + "."
+                        + format.name().toLowerCase() + "\"")
+                .body(body);
+    }
+
+    @Override
+    public ResponseEntity<SpendingSummaryDto> getSpendingSummary(@PathVariable UUID accountId,
+                                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                 @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                 @RequestParam(defaultValue = "DAY") SummaryPeriod period) {
+        return ResponseEntity.ok(dailySpendService.getSummary(accountId, from, to, period));
+    }
+
+    @Override
+    public ResponseEntity<AccountEntity> deposit(@AuthenticationPrincipal UserEntity user,
+                                                 @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                                 @RequestBody @Valid DepositRequestDto requestDto) {
+        AccountEntity updatedAccount = idempotencyService.execute(user.getId(), idempotencyKey, IdempotentOperation.DEPOSIT,
+                requestDto, AccountEntity.class, () -> transactionService.deposit(
+                        requestDto.getUserId(),
+                        requestDto.getAccountId(),
+                        requestDto.getAmount()));
         return ResponseEntity.ok(updatedAccount);
     }
 
     @Override
-    public ResponseEntity<Void> transfer(@RequestBody @Valid TransferRequestDto requestDto) {
-        transactionService.transfer(
-                requestDto.getSenderUserId(),
-                requestDto.getSenderAccountId(),
-                requestDto.getReceiverAccountId(),
-                requestDto.getAmount()
-        );
+    public ResponseEntity<Void> transfer(@AuthenticationPrincipal UserEntity user,
+                                         @RequestHeader(value = IDEMPOTENCY_KEY_HEADER, required = false) String idempotencyKey,
+                                         @RequestBody @Valid TransferRequestDto requestDto) {
+        idempotencyService.execute(user.getId(), idempotencyKey, IdempotentOperation.TRANSFER, requestDto, Void.class, () -> {
+            transactionService.transfer(
+                    requestDto.getSenderUserId(),
+                    requestDto.getSenderAccountId(),
+                    requestDto.getReceiverAccountId(),
+                    requestDto.getAmount()
+            );
+            return null;
+        });
         return ResponseEntity.ok().build();
     }
+
+    @Override
+    public ResponseEntity<List<TransferBatchResultDto>> transferBatch(@RequestBody @Valid TransferBatchRequestDto requestDto) {
+        List<TransferBatchResultDto> results = transactionService.transferBatch(requestDto.getTransfers());
+        return ResponseEntity.ok(results);
+    }
 }
@@ -0,0 +1,20 @@
+package com.example.ipr.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Неизменяемый снимок лимита счета.
+ */
+@Getter
+@AllArgsConstructor
+public class AccountLimit {
+
+    private final BigDecimal limitAmount;
+    /**
+     * Длина скользящего окна лимита в днях; null — календарный месяц.
+     */
+    private final Integer windowDays;
+}
@@ -0,0 +1,17 @@
+package com.example.ipr.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Результат атомарного зачисления на счет: новый баланс и валюта счета.
+ */
+@Getter
+@AllArgsConstructor
+public class CreditedAccount {
+
+    private final BigDecimal balance;
+    private final Integer currencyId;
+}
@@ -5,10 +5,24 @@ import org.hibernate.id.IdentifierGenerator;
 
 import java.util.UUID;
 
+/**
+ * Генератор идентификаторов сущностей. По умолчанию выдает случайные UUID,
+ * для сущностей с {@link TimeOrderedId} — упорядоченные по времени.
+ */
 public class CustomUUIDGenerator implements IdentifierGenerator {
 
+    private static final ClassValue<Boolean> TIME_ORDERED = new ClassValue<>() {
+        @Override
+        protected Boolean computeValue(Class<?> type) {
+            return type.isAnnotationPresent(TimeOrderedId.class);
+        }
+    };
+
     @Override
     public Object generate(SharedSessionContractImplementor session, Object object) {
+        if (TIME_ORDERED.get(object.getClass())) {
+            return TimeOrderedUuidGenerator.next();
+        }
         return UUID.randomUUID();
     }
 }
@@ -0,0 +1,33 @@
+package com.example.ipr.domain;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+import java.util.UUID;
+
+/**
+ * Захваченный ключ идемпотентности выполняемого запроса. Операция сохраняет по нему свой результат
+ * в собственной транзакции, чтобы результат и изменение счетов фиксировались вместе.
+ */
+@Getter
+@RequiredArgsConstructor
+public class IdempotentRequest {
+
+    /**
+     * Ключ идемпотентности с областью пользователя.
+     */
+    private final String key;
+    private final String requestHash;
+    /**
+     * Идентификатор захвата: результат сохраняется, только пока ключ захвачен именно этим запросом.
+     */
+    private final UUID claimId;
+    /**
+     * Результат сохранен и зафиксирован транзакцией операции.
+     */
+    private volatile boolean stored;
+
+    public void markStored() {
+        stored = true;
+    }
+}
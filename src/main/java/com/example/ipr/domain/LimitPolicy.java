@@ -0,0 +1,180 @@
+package com.example.ipr.domain;
+
+import com.example.ipr.enums.LimitAction;
+import com.example.ipr.enums.LimitScope;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Правила лимитов счета, скомпилированные для проверки перевода без обращения к базе данных.
+ * Правила группируются по периоду: операция, день, месяц и окно лимита счета. Внутри периода запреты сводятся
+ * к наименьшему порогу, а пороги комиссий сортируются, и ставка каждого порога заменяется наибольшей ставкой
+ * среди порогов не выше его. Проверка перевода делает по одному двоичному поиску на период,
+ * поэтому ее стоимость почти не зависит от числа правил.
+ * <p>
+ * Лимит счета из {@link AccountLimit} компилируется как порог комиссии 5% на окно лимита.
+ * Экземпляр неизменяем и может использоваться из любого потока.
+ */
+public final class LimitPolicy {
+
+    /**
+     * Ставка комиссии за превышение лимита счета.
+     */
+    private static final BigDecimal ACCOUNT_LIMIT_FEE_RATE = BigDecimal.valueOf(0.05);
+
+    /**
+     * Политика счета без лимита и правил: любой перевод разрешен без комиссии.
+     */
+    public static final LimitPolicy NONE = new LimitPolicy(null, Tiers.EMPTY, Tiers.EMPTY, Tiers.EMPTY, Tiers.EMPTY);
+
+    private final Integer windowDays;
+    private final Tiers transaction;
+    private final Tiers day;
+    private final Tiers month;
+    private final Tiers window;
+
+    private LimitPolicy(Integer windowDays, Tiers transaction, Tiers day, Tiers month, Tiers window) {
+        this.windowDays = windowDays;
+        this.transaction = transaction;
+        this.day = day;
+        this.month = month;
+        this.window = window;
+    }
+
+    /**
+     * Компилирует лимит и правила счета.
+     *
+     * @param limit Лимит счета или null, если лимит не установлен
+     * @param rules Правила лимитов счета
+     * @return Политика счета; {@link #NONE}, если нет ни лимита, ни правил
+     */
+    public static LimitPolicy compile(AccountLimit limit, List<LimitRuleDto> rules) {
+        if (Objects.isNull(limit) && rules.isEmpty()) {
+            return NONE;
+        }
+        Tiers window = Objects.isNull(limit) ? Tiers.EMPTY : Tiers.compile(List.of(
+                new LimitRuleDto(null, LimitAction.FEE, limit.getLimitAmount(), ACCOUNT_LIMIT_FEE_RATE)));
+        return new LimitPolicy(Objects.isNull(limit) ? null : limit.getWindowDays(),
+                Tiers.compile(ofScope(rules, LimitScope.TRANSACTION)),
+                Tiers.compile(ofScope(rules, LimitScope.DAY)),
+                Tiers.compile(ofScope(rules, LimitScope.MONTH)),
+                window);
+    }
+
+    /**
+     * Длина скользящего окна лимита счета в днях; null — календарный месяц или лимит не установлен.
+     */
+    public Integer getWindowDays() {
+        return windowDays;
+    }
+
+    /**
+     * Возвращает true, если у счета нет ни лимита, ни правил и проверка не нуждается в счетчиках расходов.
+     */
+    public boolean isEmpty() {
+        return this == NONE;
+    }
+
+    /**
+     * Проверяет перевод по всем правилам. Если сработал хотя бы один запрет, перевод не разрешается;
+     * иначе комиссия берется по наибольшей ставке среди превышенных порогов.
+     *
+     * @param amount   Сумма перевода
+     * @param counters Расходы счета до перевода
+     * @return Объект {@link CheckTransferResponse} с решением и комиссией
+     */
+    public CheckTransferResponse evaluate(BigDecimal amount, SpendCounters counters) {
+        Tiers[] tiers = {transaction, day, month, window};
+        BigDecimal[] totals = {amount, counters.getSpentToday().add(amount), counters.getSpentThisMonth().add(amount),
+                counters.getSpentInWindow().add(amount)};
+
+        BigDecimal feeRate = BigDecimal.ZERO;
+        for (int i = 0; i < tiers.length; i++) {
+            if (tiers[i].rejects(totals[i])) {
+                return new CheckTransferResponse(false, false, BigDecimal.ZERO);
+            }
+            feeRate = feeRate.max(tiers[i].feeRate(totals[i]));
+        }
+        if (feeRate.signum() == 0) {
+            return new CheckTransferResponse(true, false, BigDecimal.ZERO);
+        }
+        return new CheckTransferResponse(true, true, amount.multiply(feeRate));
+    }
+
+    private static List<LimitRuleDto> ofScope(List<LimitRuleDto> rules, LimitScope scope) {
+        return rules.stream().filter(rule -> rule.getScope() == scope).toList();
+    }
+
+    /**
+     * Правила одного периода: наименьший порог запрета и отсортированные пороги комиссий.
+     */
+    private static final class Tiers {
+
+        private static final Tiers EMPTY = new Tiers(null, new BigDecimal[0], new BigDecimal[0]);
+
+        private final BigDecimal rejectAbove;
+        private final BigDecimal[] thresholds;
+        /**
+         * Ставка при превышении порога с тем же индексом: наибольшая среди этого и меньших порогов.
+         */
+        private final BigDecimal[] feeRates;
+
+        private Tiers(BigDecimal rejectAbove, BigDecimal[] thresholds, BigDecimal[] feeRates) {
+            this.rejectAbove = rejectAbove;
+            this.thresholds = thresholds;
+            this.feeRates = feeRates;
+        }
+
+        private static Tiers compile(List<LimitRuleDto> rules) {
+            if (rules.isEmpty()) {
+                return EMPTY;
+            }
+            BigDecimal rejectAbove = rules.stream()
+                    .filter(rule -> rule.getAction() == LimitAction.REJECT)
+                    .map(LimitRuleDto::getLimitAmount)
+                    .min(Comparator.naturalOrder())
+                    .orElse(null);
+            List<LimitRuleDto> fees = new ArrayList<>(rules.stream()
+                    .filter(rule -> rule.getAction() == LimitAction.FEE)
+                    .toList());
+            fees.sort(Comparator.comparing(LimitRuleDto::getLimitAmount));
+
+            BigDecimal[] thresholds = new BigDecimal[fees.size()];
+            BigDecimal[] feeRates = new BigDecimal[fees.size()];
+            BigDecimal maxRate = BigDecimal.ZERO;
+            for (int i = 0; i < fees.size(); i++) {
+                maxRate = maxRate.max(fees.get(i).getFeeRate());
+                thresholds[i] = fees.get(i).getLimitAmount();
+                feeRates[i] = maxRate;
+            }
+            return new Tiers(rejectAbove, thresholds, feeRates);
+        }
+
+        private boolean rejects(BigDecimal total) {
+            return Objects.nonNull(rejectAbove) && total.compareTo(rejectAbove) > 0;
+        }
+
+        /**
+         * Возвращает ставку наибольшего превышенного порога или 0, если ни один порог не превышен.
+         */
+        private BigDecimal feeRate(BigDecimal total) {
+            int low = 0;
+            int high = thresholds.length - 1;
+            int exceeded = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (total.compareTo(thresholds[middle]) > 0) {
+                    exceeded = middle;
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            return exceeded < 0 ? BigDecimal.ZERO : feeRates[exceeded];
+        }
+    }
+}
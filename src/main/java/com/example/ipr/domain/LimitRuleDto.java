@@ -0,0 +1,35 @@
+package com.example.ipr.domain;
+
+import com.example.ipr.enums.LimitAction;
+import com.example.ipr.enums.LimitScope;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class LimitRuleDto {
+
+    @NotNull
+    private LimitScope scope;
+
+    @NotNull
+    private LimitAction action;
+
+    @NotNull
+    @Positive
+    private BigDecimal limitAmount;
+
+    /**
+     * Доля комиссии от суммы перевода, например 0.05; обязательна для действия FEE.
+     */
+    @Positive
+    private BigDecimal feeRate;
+}
@@ -0,0 +1,17 @@
+package com.example.ipr.domain;
+
+import com.example.ipr.persist.entities.AccountEntity;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Счет, заблокированный на время перевода, вместе с расходами за периоды, по которым проверяются лимиты.
+ * Сами правила лимитов берутся из {@link LimitPolicy} счета.
+ */
+@Getter
+@AllArgsConstructor
+public class LockedAccount {
+
+    private final AccountEntity account;
+    private final SpendCounters counters;
+}
@@ -0,0 +1,25 @@
+package com.example.ipr.domain;
+
+import com.example.ipr.enums.OutboxEventType;
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Событие в том виде, в котором оно доставляется внешним сервисам.
+ * Содержимое уже сериализовано при записи события и передается без повторного разбора.
+ */
+@Getter
+@AllArgsConstructor
+public class OutboxMessageDto {
+
+    private final UUID id;
+    private final OutboxEventType type;
+    private final UUID aggregateId;
+    private final LocalDateTime createdAt;
+    @JsonRawValue
+    private final String payload;
+}
@@ -1,6 +1,7 @@
 package com.example.ipr.domain;
 
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -23,4 +24,10 @@ public class SetLimitDto {
 
     @NotNull
     private Integer currencyId;
+
+    /**
+     * Длина скользящего окна лимита в днях; если не задана, лимит действует на календарный месяц.
+     */
+    @Positive
+    private Integer windowDays;
 }
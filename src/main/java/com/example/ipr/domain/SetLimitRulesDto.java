@@ -0,0 +1,27 @@
+package com.example.ipr.domain;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+import java.util.UUID;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SetLimitRulesDto {
+
+    @NotNull
+    private UUID accountId;
+
+    /**
+     * Новый набор правил счета; пустой список удаляет все правила.
+     */
+    @NotNull
+    private List<@Valid LimitRuleDto> rules;
+}
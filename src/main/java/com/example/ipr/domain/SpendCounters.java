@@ -0,0 +1,47 @@
+package com.example.ipr.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * Расходы счета за периоды, по которым проверяются лимиты: текущий день, календарный месяц
+ * и окно лимита счета (календарный месяц или скользящее окно в днях).
+ * Все счетчики читаются одним запросом вместе со счетом; при нескольких переводах с одного счета в одной транзакции
+ * каждый перевод добавляется к счетчикам через {@link #add}.
+ */
+@Getter
+@AllArgsConstructor
+public class SpendCounters {
+
+    private BigDecimal spentToday;
+    private BigDecimal spentThisMonth;
+    private BigDecimal spentInWindow;
+
+    public static SpendCounters empty() {
+        return new SpendCounters(BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+
+    /**
+     * Заменяет расходы с начала месяца значением, полученным при резерве перевода в счетчике расходов.
+     *
+     * @param spentThisMonth Расходы за месяц до перевода
+     * @param monthWindow    true, если окно лимита счета — календарный месяц и его расходы тоже заменяются
+     */
+    public void applyMonthReservation(BigDecimal spentThisMonth, boolean monthWindow) {
+        this.spentThisMonth = spentThisMonth;
+        if (monthWindow) {
+            spentInWindow = spentThisMonth;
+        }
+    }
+
+    /**
+     * Добавляет сумму перевода ко всем счетчикам.
+     */
+    public void add(BigDecimal amount) {
+        spentToday = spentToday.add(amount);
+        spentThisMonth = spentThisMonth.add(amount);
+        spentInWindow = spentInWindow.add(amount);
+    }
+}
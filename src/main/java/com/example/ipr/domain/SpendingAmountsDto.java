@@ -0,0 +1,23 @@
+package com.example.ipr.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SpendingAmountsDto {
+
+    private LocalDate periodStart;
+    private Integer currencyId;
+    private BigDecimal spentAmount;
+    private BigDecimal feeAmount;
+    private BigDecimal receivedAmount;
+    private BigDecimal depositedAmount;
+}
@@ -0,0 +1,28 @@
+package com.example.ipr.domain;
+
+import com.example.ipr.enums.SummaryPeriod;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Сводка движения средств счета за период: суммы по дням или месяцам и итоги периода, отдельно по каждой валюте.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class SpendingSummaryDto {
+
+    private UUID accountId;
+    private LocalDate from;
+    private LocalDate to;
+    private SummaryPeriod period;
+    private List<SpendingAmountsDto> periods;
+    private List<SpendingAmountsDto> totals;
+}
@@ -0,0 +1,28 @@
+package com.example.ipr.domain;
+
+import com.example.ipr.enums.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Строка выписки по счету: проводка любого вида — списание, зачисление, пополнение или комиссия.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class StatementRowDto {
+
+    private UUID transactionId;
+    private TransactionType type;
+    private BigDecimal amount;
+    private Integer currencyId;
+    private LocalDateTime transactionDate;
+    private String description;
+}
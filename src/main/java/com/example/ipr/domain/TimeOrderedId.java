@@ -0,0 +1,16 @@
+package com.example.ipr.domain;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Помечает сущность, идентификаторы которой {@link CustomUUIDGenerator} создает упорядоченными по времени
+ * (см. {@link TimeOrderedUuidGenerator}). Подходит для таблиц, куда строки только добавляются:
+ * новые ключи попадают в конец индекса первичного ключа, а не в случайные страницы.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface TimeOrderedId {
+}
@@ -0,0 +1,52 @@
+package com.example.ipr.domain;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Генератор UUID версии 7 (RFC 9562): старшие 48 бит — время в миллисекундах от эпохи Unix,
+ * следующие 12 бит — счетчик внутри миллисекунды, остальные биты — случайные.
+ * <p>
+ * Значения монотонно возрастают в пределах JVM: время и счетчик хранятся в одном {@link AtomicLong}
+ * и продвигаются через compare-and-set без блокировок. Если за миллисекунду выдано больше 4096 значений,
+ * время в идентификаторе опережает часы на несколько миллисекунд, но порядок сохраняется.
+ * Случайная часть берется из {@link ThreadLocalRandom}: идентификатор не является секретом,
+ * а общий {@link java.security.SecureRandom} становится узким местом при частых вставках.
+ */
+public final class TimeOrderedUuidGenerator {
+
+    private static final int COUNTER_BITS = 12;
+    private static final long COUNTER_MASK = (1L << COUNTER_BITS) - 1;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT_MASK = 0x3FFFFFFFFFFFFFFFL;
+    private static final long VARIANT_RFC = 0x8000000000000000L;
+
+    /**
+     * Последнее выданное значение: время в миллисекундах, сдвинутое на COUNTER_BITS, плюс счетчик.
+     */
+    private static final AtomicLong LAST_TIMESTAMP_AND_COUNTER = new AtomicLong();
+
+    private TimeOrderedUuidGenerator() {
+    }
+
+    public static UUID next() {
+        long timestampAndCounter = nextTimestampAndCounter();
+        long mostSigBits = (timestampAndCounter >>> COUNTER_BITS) << 16
+                | VERSION_7
+                | (timestampAndCounter & COUNTER_MASK);
+        long leastSigBits = ThreadLocalRandom.current().nextLong() & VARIANT_MASK | VARIANT_RFC;
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    private static long nextTimestampAndCounter() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        while (true) {
+            long last = LAST_TIMESTAMP_AND_COUNTER.get();
+            long next = Math.max(now, last + 1);
+            if (LAST_TIMESTAMP_AND_COUNTER.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.example.ipr.domain;
+
+import com.example.ipr.exceptions.BadRequestException;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/**
+ * Позиция в истории операций для постраничного чтения по ключу (transaction_date, id):
+ * следующая страница начинается с операций, которые в порядке убывания идут после этой пары.
+ * Клиенту курсор передается в непрозрачном виде (base64url).
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionCursor {
+
+    private static final String SEPARATOR = "|";
+
+    private final LocalDateTime transactionDate;
+    private final UUID transactionId;
+
+    public String encode() {
+        String raw = transactionDate + SEPARATOR + transactionId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Восстанавливает курсор из строки, полученной клиентом в предыдущем ответе.
+     *
+     * @param cursor Непрозрачный курсор
+     * @return Позиция в истории операций
+     * @throws BadRequestException Если курсор поврежден
+     */
+    public static TransactionCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new TransactionCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BadRequestException("Некорректный курсор");
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.ipr.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Страница истории операций счета. Если nextCursor не равен null, его нужно передать
+ * в параметре cursor, чтобы получить следующую страницу.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransactionPageDto {
+
+    private List<ExpenseTransactionDto> items;
+    private String nextCursor;
+}
@@ -0,0 +1,20 @@
+package com.example.ipr.domain;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferBatchRequestDto {
+
+    @NotEmpty
+    private List<@Valid TransferRequestDto> transfers;
+}
@@ -0,0 +1,20 @@
+package com.example.ipr.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class TransferBatchResultDto {
+
+    private int index;
+    private boolean success;
+    private BigDecimal feeAmount;
+    private String error;
+}
@@ -0,0 +1,34 @@
+package com.example.ipr.domain.event;
+
+import com.example.ipr.enums.TransactionType;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Событие изменения баланса счета пополнением или переводом. Публикуется в транзакции операции
+ * и доставляется подписчикам ленты изменений после ее фиксации.
+ */
+@Getter
+@AllArgsConstructor
+public class BalanceChangedEvent {
+
+    private final UUID accountId;
+    private final TransactionType type;
+    /**
+     * Изменение баланса: положительное при зачислении, отрицательное при списании (вместе с комиссией).
+     */
+    private final BigDecimal amount;
+    /**
+     * Баланс после операции; null, если операция выполнена движком горячих счетов и баланс не известен вызывающему.
+     */
+    private final BigDecimal balance;
+    /**
+     * Счет второй стороны перевода; null для пополнения.
+     */
+    private final UUID counterpartyAccountId;
+    private final LocalDateTime occurredAt;
+}
@@ -0,0 +1,21 @@
+package com.example.ipr.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Событие пополнения счета для внешних сервисов.
+ */
+@Getter
+@AllArgsConstructor
+public class DepositCompletedEvent {
+
+    private final UUID accountId;
+    private final BigDecimal amount;
+    private final Integer currencyId;
+    private final LocalDateTime occurredAt;
+}
@@ -0,0 +1,22 @@
+package com.example.ipr.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * Событие изменения лимита счета. Публикуется после установки или обновления лимита.
+ */
+@Getter
+@AllArgsConstructor
+public class LimitChangedEvent {
+
+    private final UUID accountId;
+    private final BigDecimal limitAmount;
+    /**
+     * Длина скользящего окна лимита в днях; null — календарный месяц.
+     */
+    private final Integer windowDays;
+}
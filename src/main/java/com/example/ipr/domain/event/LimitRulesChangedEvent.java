@@ -0,0 +1,19 @@
+package com.example.ipr.domain.event;
+
+import com.example.ipr.domain.LimitRuleDto;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Событие замены правил лимитов счета. Публикуется после сохранения нового набора правил.
+ */
+@Getter
+@AllArgsConstructor
+public class LimitRulesChangedEvent {
+
+    private final UUID accountId;
+    private final List<LimitRuleDto> rules;
+}
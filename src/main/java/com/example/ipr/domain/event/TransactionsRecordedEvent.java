@@ -0,0 +1,17 @@
+package com.example.ipr.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Событие записи проводок. Публикуется в транзакции, которая добавила проводки по счетам.
+ */
+@Getter
+@AllArgsConstructor
+public class TransactionsRecordedEvent {
+
+    private final Set<UUID> accountIds;
+}
@@ -0,0 +1,27 @@
+package com.example.ipr.domain.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Событие выполненного перевода для внешних сервисов.
+ */
+@Getter
+@AllArgsConstructor
+public class TransferCompletedEvent {
+
+    /**
+     * Проводка списания у отправителя; на нее ссылаются проводки зачисления и комиссии.
+     */
+    private final UUID transactionId;
+    private final UUID senderAccountId;
+    private final UUID receiverAccountId;
+    private final BigDecimal amount;
+    private final BigDecimal feeAmount;
+    private final Integer currencyId;
+    private final LocalDateTime occurredAt;
+}
@@ -0,0 +1,7 @@
+package com.example.ipr.enums;
+
+public enum IdempotentOperation {
+
+    TRANSFER,
+    DEPOSIT
+}
@@ -0,0 +1,16 @@
+package com.example.ipr.enums;
+
+/**
+ * Действие правила лимита при превышении порога.
+ */
+public enum LimitAction {
+
+    /**
+     * Перевод выполняется с комиссией по ставке правила.
+     */
+    FEE,
+    /**
+     * Перевод запрещается.
+     */
+    REJECT
+}
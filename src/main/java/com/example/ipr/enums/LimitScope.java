@@ -0,0 +1,20 @@
+package com.example.ipr.enums;
+
+/**
+ * Период, за который правило лимита считает расходы счета.
+ */
+public enum LimitScope {
+
+    /**
+     * Сумма одного перевода.
+     */
+    TRANSACTION,
+    /**
+     * Расходы за текущий день вместе с переводом.
+     */
+    DAY,
+    /**
+     * Расходы с начала календарного месяца вместе с переводом.
+     */
+    MONTH
+}
@@ -0,0 +1,24 @@
+package com.example.ipr.enums;
+
+/**
+ * Тип события, передаваемого внешним сервисам через ipr.outbox_events.
+ */
+public enum OutboxEventType {
+
+    /**
+     * Выполнен перевод между счетами.
+     */
+    TRANSFER,
+    /**
+     * Пополнен счет.
+     */
+    DEPOSIT,
+    /**
+     * Установлен или изменен лимит счета.
+     */
+    LIMIT_CHANGED,
+    /**
+     * Заменены правила лимитов счета.
+     */
+    LIMIT_RULES_CHANGED
+}
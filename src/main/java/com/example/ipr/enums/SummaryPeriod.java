@@ -0,0 +1,10 @@
+package com.example.ipr.enums;
+
+/**
+ * Шаг разбиения сводки движения средств.
+ */
+public enum SummaryPeriod {
+
+    DAY,
+    MONTH
+}
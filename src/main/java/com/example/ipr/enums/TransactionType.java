@@ -0,0 +1,24 @@
+package com.example.ipr.enums;
+
+/**
+ * Вид проводки по счету.
+ */
+public enum TransactionType {
+
+    /**
+     * Списание суммы перевода со счета отправителя.
+     */
+    TRANSFER_OUT,
+    /**
+     * Зачисление суммы перевода на счет получателя.
+     */
+    TRANSFER_IN,
+    /**
+     * Пополнение счета.
+     */
+    DEPOSIT,
+    /**
+     * Комиссия за превышение лимита, связанная с проводкой перевода.
+     */
+    FEE
+}
@@ -0,0 +1,16 @@
+package com.example.ipr.enums;
+
+/**
+ * Режим согласования конкурентных переводов.
+ */
+public enum TransferMode {
+
+    /**
+     * Счета блокируются (SELECT ... FOR UPDATE) до конца транзакции.
+     */
+    PESSIMISTIC,
+    /**
+     * Счета читаются без блокировки и обновляются по версии; при конфликте перевод повторяется.
+     */
+    OPTIMISTIC
+}
@@ -0,0 +1,43 @@
+package com.example.ipr.exceptions;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.transaction.HeuristicCompletionException;
+import org.springframework.transaction.TransactionSystemException;
+
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Objects;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Определение исхода транзакции по ошибке, с которой она завершилась.
+ */
+public final class TransactionOutcome {
+
+    private TransactionOutcome() {
+    }
+
+    /**
+     * Возвращает true, если ошибка могла произойти после фиксации транзакции: при фиксации
+     * или из-за потери соединения с базой данных, когда неизвестно, дошла ли фиксация до базы,
+     * а также если истекло ожидание фиксации, которая выполняется в другом потоке.
+     * Для остальных ошибок транзакция точно откатилась.
+     */
+    public static boolean isUnknown(Throwable e) {
+        for (Throwable cause = e; Objects.nonNull(cause); cause = cause.getCause()) {
+            if (cause instanceof TransactionSystemException
+                    || cause instanceof HeuristicCompletionException
+                    || cause instanceof DataAccessResourceFailureException
+                    || cause instanceof TransientDataAccessResourceException
+                    || cause instanceof RecoverableDataAccessException
+                    || cause instanceof SQLRecoverableException
+                    || cause instanceof SQLTransientConnectionException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
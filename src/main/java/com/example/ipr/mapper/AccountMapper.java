@@ -17,7 +17,8 @@ public interface AccountMapper {
             @Mapping(source = "currencyId", target = "currencyId"),
             @Mapping(target = "balance", expression = "java(BigDecimal.ZERO)"), // Баланс всегда 0
             @Mapping(target = "createdAt", expression = "java(LocalDateTime.now())"), // Устанавливаем текущее время
-            @Mapping(target = "id", ignore = true) // Hibernate сам создаст UUID
+            @Mapping(target = "id", ignore = true), // Hibernate сам создаст UUID
+            @Mapping(target = "version", ignore = true) // Hibernate установит начальную версию при сохранении
     })
     AccountEntity toAccountEntity(UUID userId, Integer currencyId);
 }
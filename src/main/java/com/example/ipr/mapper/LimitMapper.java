@@ -1,6 +1,8 @@
 package com.example.ipr.mapper;
 
+import com.example.ipr.domain.LimitRuleDto;
 import com.example.ipr.persist.entities.LimitEntity;
+import com.example.ipr.persist.entities.LimitRuleEntity;
 import com.example.ipr.persist.entities.LimitSettingEntity;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -8,6 +10,7 @@ import org.mapstruct.Mappings;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Mapper(componentModel = "spring", imports = {LocalDateTime.class})
@@ -18,9 +21,10 @@ public interface LimitMapper {
             @Mapping(source = "accountId", target = "accountId"),
             @Mapping(source = "limitAmount", target = "limitAmount"),
             @Mapping(source = "currencyId", target = "currencyId"),
-            @Mapping(target = "createdAt", expression = "java(LocalDateTime.now())")
+            @Mapping(target = "createdAt", expression = "java(LocalDateTime.now())"),
+            @Mapping(source = "windowDays", target = "windowDays")
     })
-    LimitEntity toLimitEntity(UUID accountId, BigDecimal limitAmount, Integer currencyId);
+    LimitEntity toLimitEntity(UUID accountId, BigDecimal limitAmount, Integer currencyId, Integer windowDays);
 
     @Mappings({
             @Mapping(target = "id", ignore = true),
@@ -29,4 +33,15 @@ public interface LimitMapper {
             @Mapping(target = "limitSetDate", expression = "java(LocalDateTime.now())")
     })
     LimitSettingEntity toLimitSettingEntity(LimitEntity limit, BigDecimal limitAmount);
+
+    @Mappings({
+            @Mapping(target = "id", ignore = true),
+            @Mapping(source = "accountId", target = "accountId"),
+            @Mapping(target = "createdAt", expression = "java(LocalDateTime.now())")
+    })
+    LimitRuleEntity toLimitRuleEntity(UUID accountId, LimitRuleDto rule);
+
+    LimitRuleDto toLimitRuleDto(LimitRuleEntity rule);
+
+    List<LimitRuleDto> toLimitRuleDtoList(List<LimitRuleEntity> rules);
 }
@@ -1,6 +1,6 @@
 package com.example.ipr.mapper;
 
-import com.example.ipr.domain.ExpenseTransactionDto;
+import com.example.ipr.enums.TransactionType;
 import com.example.ipr.persist.entities.TransactionEntity;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -8,7 +8,6 @@ import org.mapstruct.Mappings;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
-import java.util.List;
 import java.util.UUID;
 
 @Mapper(componentModel = "spring", imports = {LocalDateTime.class})
@@ -19,18 +18,10 @@ public interface TransactionMapper {
             @Mapping(source = "amount", target = "amount"),
             @Mapping(source = "currencyId", target = "currencyId"),
             @Mapping(target = "transactionDate", expression = "java(LocalDateTime.now())"),
-            @Mapping(target = "description", source = "description")
+            @Mapping(target = "description", source = "description"),
+            @Mapping(target = "type", source = "type"),
+            @Mapping(target = "relatedTransactionId", source = "relatedTransactionId")
     })
-    TransactionEntity toTransactionEntity(UUID accountId, BigDecimal amount, Integer currencyId, String description);
-
-    @Mappings({
-            @Mapping(source = "id", target = "transactionId"),
-            @Mapping(source = "amount", target = "amount"),
-            @Mapping(source = "currencyId", target = "currencyId"),
-            @Mapping(source = "transactionDate", target = "transactionDate"),
-            @Mapping(source = "description", target = "description")
-    })
-    ExpenseTransactionDto toExpenseTransactionDto(TransactionEntity transactionEntity);
-
-    List<ExpenseTransactionDto> toExpenseTransactionDtoList(List<TransactionEntity> transactions);
+    TransactionEntity toTransactionEntity(UUID accountId, BigDecimal amount, Integer currencyId, String description,
+                                          TransactionType type, UUID relatedTransactionId);
 }
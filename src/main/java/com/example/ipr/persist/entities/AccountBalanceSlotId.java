@@ -0,0 +1,21 @@
+package com.example.ipr.persist.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.util.UUID;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountBalanceSlotId implements Serializable {
+
+    private UUID accountId;
+    private Integer slot;
+}
@@ -1,8 +1,13 @@
 package com.example.ipr.persist.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.Column;
+import jakarta.persistence.ColumnResult;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EntityResult;
+import jakarta.persistence.SqlResultSetMapping;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -18,8 +23,21 @@ import java.util.UUID;
 @NoArgsConstructor
 @Entity
 @Table(name = "accounts", schema = "ipr")
+@SqlResultSetMapping(
+        name = AccountEntity.LOCKED_ACCOUNT_MAPPING,
+        entities = @EntityResult(entityClass = AccountEntity.class),
+        columns = {
+                @ColumnResult(name = "spent_today", type = BigDecimal.class),
+                @ColumnResult(name = "spent_this_month", type = BigDecimal.class),
+                @ColumnResult(name = "spent_in_window", type = BigDecimal.class)
+        })
 public class AccountEntity extends BaseUuidEntity {
 
+    /**
+     * Маппинг строки запроса блокировки счета для перевода: сам счет и счетчики расходов для проверки лимитов.
+     */
+    public static final String LOCKED_ACCOUNT_MAPPING = "LockedAccountMapping";
+
     @Column(name = "user_id", nullable = false)
     private UUID userId;
 
@@ -31,4 +49,22 @@ public class AccountEntity extends BaseUuidEntity {
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
+
+    /**
+     * Версия строки счета для оптимистической блокировки: каждое изменение счета увеличивает ее на 1.
+     */
+    @JsonIgnore
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
+
+    /**
+     * Версия лимита и правил лимитов счета: увеличивается при каждом их изменении. По ней кэш правил замечает,
+     * что правила изменены другим экземпляром приложения. Изменяется только запросом
+     * {@link com.example.ipr.persist.repository.AccountRepository#incrementLimitsVersion}; новый счет создается
+     * с версией 0, как и значение столбца по умолчанию.
+     */
+    @JsonIgnore
+    @Column(name = "limits_version", nullable = false, insertable = false, updatable = false)
+    private Long limitsVersion = 0L;
 }
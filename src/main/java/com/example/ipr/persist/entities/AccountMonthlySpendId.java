@@ -0,0 +1,22 @@
+package com.example.ipr.persist.entities;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Getter
+@Setter
+@EqualsAndHashCode
+@AllArgsConstructor
+@NoArgsConstructor
+public class AccountMonthlySpendId implements Serializable {
+
+    private UUID accountId;
+    private LocalDate periodStart;
+}
@@ -0,0 +1,48 @@
+package com.example.ipr.persist.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.IdClass;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@IdClass(DailyAccountSpendId.class)
+@Table(name = "daily_account_spend", schema = "ipr")
+public class DailyAccountSpendEntity {
+
+    @Id
+    @Column(name = "account_id", nullable = false)
+    private UUID accountId;
+
+    @Id
+    @Column(name = "spend_date", nullable = false)
+    private LocalDate spendDate;
+
+    @Column(name = "currency_id", nullable = false)
+    private Integer currencyId;
+
+    @Column(name = "spent_amount", nullable = false)
+    private BigDecimal spentAmount;
+
+    @Column(name = "fee_amount", nullable = false)
+    private BigDecimal feeAmount;
+
+    @Column(name = "received_amount", nullable = false)
+    private BigDecimal receivedAmount;
+
+    @Column(name = "deposited_amount", nullable = false)
+    private BigDecimal depositedAmount;
+}
@@ -0,0 +1,56 @@
+package com.example.ipr.persist.entities;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "idempotency_keys", schema = "ipr")
+public class IdempotencyKeyEntity {
+
+    @Id
+    @Column(name = "idempotency_key", nullable = false, updatable = false)
+    private String idempotencyKey;
+
+    @Column(name = "operation", nullable = false)
+    private String operation;
+
+    @Column(name = "request_hash", nullable = false)
+    private String requestHash;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    @Column(name = "response_body")
+    private String responseBody;
+
+    @Column(name = "error_message")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    /**
+     * Время последнего захвата ключа; незавершенный захват старше срока аренды считается брошенным.
+     */
+    @Column(name = "claimed_at", nullable = false)
+    private LocalDateTime claimedAt;
+
+    /**
+     * Идентификатор текущего захвата; результат сохраняет только операция этого захвата.
+     */
+    @Column(name = "claim_id")
+    private UUID claimId;
+}
@@ -31,4 +31,10 @@ public class LimitEntity extends BaseUuidEntity {
 
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
+
+    /**
+     * Длина скользящего окна лимита в днях, включая текущий; null — лимит на календарный месяц.
+     */
+    @Column(name = "window_days")
+    private Integer windowDays;
 }
@@ -0,0 +1,52 @@
+package com.example.ipr.persist.entities;
+
+import com.example.ipr.enums.LimitAction;
+import com.example.ipr.enums.LimitScope;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+@Entity
+@Table(name = "limit_rules", schema = "ipr")
+public class LimitRuleEntity extends BaseUuidEntity {
+
+    @Column(name = "account_id", nullable = false)
+    private UUID accountId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "scope", nullable = false)
+    private LimitScope scope;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "action", nullable = false)
+    private LimitAction action;
+
+    /**
+     * Порог расходов за период правила; правило срабатывает, когда расходы вместе с переводом его превышают.
+     */
+    @Column(name = "limit_amount", nullable = false)
+    private BigDecimal limitAmount;
+
+    /**
+     * Доля комиссии от суммы перевода для действия FEE; для REJECT не используется.
+     */
+    @Column(name = "fee_rate")
+    private BigDecimal feeRate;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -1,5 +1,6 @@
 package com.example.ipr.persist.entities;
 
+import com.example.ipr.domain.TimeOrderedId;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -14,6 +15,7 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@TimeOrderedId
 @Table(name = "limit_settings", schema = "ipr")
 public class LimitSettingEntity extends BaseUuidEntity {
 
@@ -1,7 +1,11 @@
 package com.example.ipr.persist.entities;
 
+import com.example.ipr.domain.TimeOrderedId;
+import com.example.ipr.enums.TransactionType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
 import jakarta.persistence.Table;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
@@ -17,6 +21,7 @@ import java.util.UUID;
 @AllArgsConstructor
 @NoArgsConstructor
 @Entity
+@TimeOrderedId
 @Table(name = "transactions", schema = "ipr")
 public class TransactionEntity extends BaseUuidEntity {
 
@@ -34,4 +39,11 @@ public class TransactionEntity extends BaseUuidEntity {
 
     @Column(name = "description")
     private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "type", nullable = false)
+    private TransactionType type;
+
+    @Column(name = "related_transaction_id")
+    private UUID relatedTransactionId;
 }
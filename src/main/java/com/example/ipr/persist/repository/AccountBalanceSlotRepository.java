@@ -0,0 +1,34 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.persist.entities.AccountBalanceSlotEntity;
+import com.example.ipr.persist.entities.AccountBalanceSlotId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface AccountBalanceSlotRepository extends JpaRepository<AccountBalanceSlotEntity, AccountBalanceSlotId> {
+
+    @Modifying
+    @Query(value = "INSERT INTO ipr.account_balance_slots (account_id, slot, balance) " +
+            "VALUES (:accountId, :slot, :amount) " +
+            "ON CONFLICT (account_id, slot) DO UPDATE " +
+            "SET balance = ipr.account_balance_slots.balance + EXCLUDED.balance", nativeQuery = true)
+    void addToSlot(@Param("accountId") UUID accountId, @Param("slot") int slot, @Param("amount") BigDecimal amount);
+
+    @Query(value = "SELECT COALESCE(SUM(s.balance), 0) FROM ipr.account_balance_slots s " +
+            "WHERE s.account_id = :accountId", nativeQuery = true)
+    BigDecimal sumBalance(@Param("accountId") UUID accountId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM AccountBalanceSlotEntity s WHERE s.accountId = :accountId AND s.balance <> 0 ORDER BY s.slot")
+    List<AccountBalanceSlotEntity> findNonEmptyForUpdate(@Param("accountId") UUID accountId);
+}
@@ -0,0 +1,53 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.persist.entities.AccountMonthlySpendEntity;
+import com.example.ipr.persist.entities.AccountMonthlySpendId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface AccountMonthlySpendRepository extends JpaRepository<AccountMonthlySpendEntity, AccountMonthlySpendId>,
+        AccountMonthlySpendRepositoryCustom {
+
+    @Modifying
+    @Query(value = "INSERT INTO ipr.account_monthly_spend (account_id, period_start, spent_amount, updated_at) " +
+            "VALUES (:accountId, :periodStart, :amount, now()) " +
+            "ON CONFLICT (account_id, period_start) DO UPDATE " +
+            "SET spent_amount = ipr.account_monthly_spend.spent_amount + EXCLUDED.spent_amount, " +
+            "updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    void addSpent(@Param("accountId") UUID accountId, @Param("periodStart") LocalDate periodStart,
+                  @Param("amount") BigDecimal amount);
+
+    @Query(value = "SELECT COALESCE(r.account_id, s.account_id) FROM (" +
+            "    SELECT t.account_id, -SUM(t.amount) AS spent FROM ipr.transactions t " +
+            "    WHERE t.type = 'TRANSFER_OUT' AND t.transaction_date >= :periodStart AND t.transaction_date < :periodEnd " +
+            "    GROUP BY t.account_id" +
+            ") r FULL JOIN (" +
+            "    SELECT account_id, spent_amount FROM ipr.account_monthly_spend WHERE period_start = CAST(:periodStart AS DATE)" +
+            ") s ON s.account_id = r.account_id " +
+            "WHERE COALESCE(r.spent, 0) <> COALESCE(s.spent_amount, 0)", nativeQuery = true)
+    List<UUID> findMismatchedAccounts(@Param("periodStart") LocalDateTime periodStart,
+                                      @Param("periodEnd") LocalDateTime periodEnd);
+
+    @Modifying
+    @Query(value = "INSERT INTO ipr.account_monthly_spend (account_id, period_start, spent_amount, updated_at) " +
+            "SELECT a.id, CAST(:periodStart AS DATE), COALESCE((" +
+            "    SELECT -SUM(t.amount) FROM ipr.transactions t " +
+            "    WHERE t.account_id = a.id AND t.type = 'TRANSFER_OUT' " +
+            "    AND t.transaction_date >= :periodStart AND t.transaction_date < :periodEnd" +
+            "), 0), now() " +
+            "FROM ipr.accounts a WHERE a.id IN (:accountIds) " +
+            "ON CONFLICT (account_id, period_start) DO UPDATE " +
+            "SET spent_amount = EXCLUDED.spent_amount, updated_at = EXCLUDED.updated_at", nativeQuery = true)
+    int rebuild(@Param("accountIds") List<UUID> accountIds, @Param("periodStart") LocalDateTime periodStart,
+                @Param("periodEnd") LocalDateTime periodEnd);
+}
@@ -0,0 +1,23 @@
+package com.example.ipr.persist.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Дополнительные операции над счетчиками расходов, которые нельзя выразить декларативными методами Spring Data.
+ */
+public interface AccountMonthlySpendRepositoryCustom {
+
+    /**
+     * Атомарно добавляет сумму к счетчику расходов счета за месяц одним выражением INSERT ... ON CONFLICT ... RETURNING
+     * и возвращает значение счетчика до добавления. Одновременные резервы по одному счетчику выполняются по очереди
+     * на его строке, поэтому каждый получает расходы с учетом всех зафиксированных перед ним.
+     *
+     * @param accountId   UUID счета
+     * @param periodStart Первый день месяца — ключ счетчика
+     * @param amount      Резервируемая сумма (положительное число)
+     * @return Расходы за месяц до резерва
+     */
+    BigDecimal reserve(UUID accountId, LocalDate periodStart, BigDecimal amount);
+}
@@ -0,0 +1,35 @@
+package com.example.ipr.persist.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Реализация {@link AccountMonthlySpendRepositoryCustom}. Подключается Spring Data к {@link AccountMonthlySpendRepository}
+ * по суффиксу Impl.
+ */
+public class AccountMonthlySpendRepositoryImpl implements AccountMonthlySpendRepositoryCustom {
+
+    private static final String RESERVE_QUERY =
+            "INSERT INTO ipr.account_monthly_spend (account_id, period_start, spent_amount, updated_at) " +
+            "VALUES (:accountId, :periodStart, :amount, now()) " +
+            "ON CONFLICT (account_id, period_start) DO UPDATE " +
+            "SET spent_amount = ipr.account_monthly_spend.spent_amount + EXCLUDED.spent_amount, " +
+            "updated_at = EXCLUDED.updated_at " +
+            "RETURNING spent_amount - CAST(:amount AS DECIMAL)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public BigDecimal reserve(UUID accountId, LocalDate periodStart, BigDecimal amount) {
+        return (BigDecimal) entityManager.createNativeQuery(RESERVE_QUERY)
+                .setParameter("accountId", accountId)
+                .setParameter("periodStart", periodStart)
+                .setParameter("amount", amount)
+                .getSingleResult();
+    }
+}
@@ -4,17 +4,48 @@ import com.example.ipr.persist.entities.AccountEntity;
 import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface AccountRepository extends JpaRepository<AccountEntity, UUID> {
+public interface AccountRepository extends JpaRepository<AccountEntity, UUID>, AccountRepositoryCustom {
 
     @Lock(LockModeType.PESSIMISTIC_WRITE)
     @Query("SELECT a FROM AccountEntity a WHERE a.id = :accountId")
     Optional<AccountEntity> findByIdForUpdate(@Param("accountId") UUID accountId);
+
+    @Query(value = "SELECT a.id FROM ipr.accounts a WHERE a.id IN (:accountIds) ORDER BY a.id FOR UPDATE", nativeQuery = true)
+    List<UUID> lockAllById(@Param("accountIds") Collection<UUID> accountIds);
+
+    @Modifying
+    @Query("UPDATE AccountEntity a SET a.balance = a.balance + :delta, a.version = a.version + 1 WHERE a.id = :accountId")
+    void addToBalance(@Param("accountId") UUID accountId, @Param("delta") BigDecimal delta);
+
+    @Query("SELECT a.id FROM AccountEntity a WHERE a.userId = :userId")
+    List<UUID> findIdsByUserId(@Param("userId") UUID userId);
+
+    /**
+     * Увеличивает версию лимита и правил лимитов счета, а вместе с ней и версию строки счета, чтобы перевод,
+     * прочитавший счет без блокировки до изменения правил, повторился уже с новыми правилами.
+     *
+     * @return Число измененных строк: 0, если счет не найден
+     */
+    @Modifying
+    @Query(value = "UPDATE ipr.accounts SET limits_version = limits_version + 1, version = version + 1 WHERE id = :accountId",
+            nativeQuery = true)
+    int incrementLimitsVersion(@Param("accountId") UUID accountId);
+
+    @Query("SELECT a.limitsVersion FROM AccountEntity a WHERE a.id = :accountId")
+    Optional<Long> findLimitsVersion(@Param("accountId") UUID accountId);
+
+    @Query("SELECT a.id, a.limitsVersion FROM AccountEntity a WHERE a.id IN (:accountIds)")
+    List<Object[]> findLimitsVersions(@Param("accountIds") Collection<UUID> accountIds);
 }
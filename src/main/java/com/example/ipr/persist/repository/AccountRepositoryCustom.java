@@ -0,0 +1,65 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.domain.CreditedAccount;
+import com.example.ipr.domain.LockedAccount;
+import com.example.ipr.persist.entities.AccountEntity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Дополнительные операции над счетами, которые нельзя выразить декларативными методами Spring Data.
+ */
+public interface AccountRepositoryCustom {
+
+    /**
+     * Одним запросом загружает и блокирует (FOR UPDATE) счета, участвующие в переводе,
+     * вместе со счетчиками расходов, по которым проверяются правила лимитов: за текущий день по дневным итогам,
+     * с начала месяца по счетчику расходов и за окно лимита счета — месяц или скользящее окно по дневным итогам,
+     * не больше одной строки итогов на день окна.
+     * Строки блокируются в порядке возрастания id, что исключает взаимные блокировки
+     * между встречными переводами.
+     *
+     * @param accountIds  UUID блокируемых счетов
+     * @param periodStart Первый день текущего месяца — ключ счетчика расходов
+     * @param today       Текущий день — последний день скользящего окна
+     * @return Заблокированные счета в порядке возрастания id; отсутствующие счета в результат не попадают
+     */
+    List<LockedAccount> lockForTransfer(Collection<UUID> accountIds, LocalDate periodStart, LocalDate today);
+
+    /**
+     * То же, что {@link #lockForTransfer}, но без блокировки строк. Используется оптимистическим режимом перевода:
+     * конфликт обнаруживается при обновлении счета по версии.
+     *
+     * @param accountIds  UUID счетов перевода
+     * @param periodStart Первый день текущего месяца — ключ счетчика расходов
+     * @param today       Текущий день — последний день скользящего окна
+     * @return Счета в порядке возрастания id; отсутствующие счета в результат не попадают
+     */
+    List<LockedAccount> findForTransfer(Collection<UUID> accountIds, LocalDate periodStart, LocalDate today);
+
+    /**
+     * Атомарно увеличивает баланс счета одним выражением UPDATE ... RETURNING, без загрузки сущности.
+     *
+     * @param accountId UUID счета
+     * @param amount    Сумма зачисления
+     * @return Новый баланс и валюта счета; пусто, если счет не найден
+     */
+    Optional<CreditedAccount> credit(UUID accountId, BigDecimal amount);
+
+    /**
+     * Атомарно пополняет счет, если он принадлежит пользователю, и возвращает счет с новым балансом.
+     * Тем же выражением пополнение добавляется к дневным итогам счета.
+     *
+     * @param accountId   UUID счета
+     * @param userId      UUID владельца счета
+     * @param amount      Сумма пополнения
+     * @param depositDate День пополнения для дневных итогов
+     * @return Счет после пополнения; пусто, если счет не найден или принадлежит другому пользователю
+     */
+    Optional<AccountEntity> creditOwnAccount(UUID accountId, UUID userId, BigDecimal amount, LocalDate depositDate);
+}
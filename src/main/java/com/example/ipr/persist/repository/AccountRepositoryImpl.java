@@ -0,0 +1,111 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.domain.CreditedAccount;
+import com.example.ipr.domain.LockedAccount;
+import com.example.ipr.domain.SpendCounters;
+import com.example.ipr.persist.entities.AccountEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Реализация {@link AccountRepositoryCustom}. Подключается Spring Data к {@link AccountRepository} по суффиксу Impl.
+ */
+public class AccountRepositoryImpl implements AccountRepositoryCustom {
+
+    private static final String FIND_FOR_TRANSFER_QUERY = "SELECT a.*, " +
+            "COALESCE(t.spent_amount, 0) AS spent_today, " +
+            "COALESCE(s.spent_amount, 0) AS spent_this_month, " +
+            "CASE WHEN l.window_days IS NULL THEN COALESCE(s.spent_amount, 0) ELSE COALESCE((" +
+            "    SELECT SUM(d.spent_amount) FROM ipr.daily_account_spend d " +
+            "    WHERE d.account_id = a.id AND d.spend_date > CAST(:today AS DATE) - l.window_days" +
+            "), 0) END AS spent_in_window " +
+            "FROM ipr.accounts a " +
+            "LEFT JOIN ipr.limits l ON l.account_id = a.id " +
+            "LEFT JOIN ipr.account_monthly_spend s ON s.account_id = a.id AND s.period_start = :periodStart " +
+            "LEFT JOIN ipr.daily_account_spend t ON t.account_id = a.id AND t.spend_date = CAST(:today AS DATE) " +
+            "WHERE a.id IN (:accountIds) " +
+            "ORDER BY a.id";
+
+    private static final String LOCK_FOR_TRANSFER_QUERY = FIND_FOR_TRANSFER_QUERY + " FOR UPDATE OF a";
+
+    private static final String CREDIT_QUERY = "UPDATE ipr.accounts " +
+            "SET balance = balance + :amount, version = version + 1 " +
+            "WHERE id = :accountId " +
+            "RETURNING balance, currency_id";
+
+    private static final String CREDIT_OWN_ACCOUNT_QUERY = "WITH credited AS (" +
+            "    UPDATE ipr.accounts " +
+            "    SET balance = balance + :amount, version = version + 1 " +
+            "    WHERE id = :accountId AND user_id = :userId " +
+            "    RETURNING *" +
+            "), daily AS (" +
+            "    INSERT INTO ipr.daily_account_spend (account_id, spend_date, currency_id, spent_amount, fee_amount, " +
+            "        received_amount, deposited_amount) " +
+            "    SELECT id, :depositDate, currency_id, 0, 0, 0, :amount FROM credited " +
+            "    ON CONFLICT (account_id, spend_date) DO UPDATE " +
+            "    SET deposited_amount = ipr.daily_account_spend.deposited_amount + EXCLUDED.deposited_amount" +
+            ") " +
+            "SELECT * FROM credited";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<LockedAccount> lockForTransfer(Collection<UUID> accountIds, LocalDate periodStart, LocalDate today) {
+        return findWithCounters(LOCK_FOR_TRANSFER_QUERY, accountIds, periodStart, today);
+    }
+
+    @Override
+    public List<LockedAccount> findForTransfer(Collection<UUID> accountIds, LocalDate periodStart, LocalDate today) {
+        return findWithCounters(FIND_FOR_TRANSFER_QUERY, accountIds, periodStart, today);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<CreditedAccount> credit(UUID accountId, BigDecimal amount) {
+        List<Object[]> rows = entityManager.createNativeQuery(CREDIT_QUERY)
+                .setParameter("accountId", accountId)
+                .setParameter("amount", amount)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new CreditedAccount((BigDecimal) row[0], ((Number) row[1]).intValue()))
+                .findFirst();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Optional<AccountEntity> creditOwnAccount(UUID accountId, UUID userId, BigDecimal amount, LocalDate depositDate) {
+        List<AccountEntity> rows = entityManager.createNativeQuery(CREDIT_OWN_ACCOUNT_QUERY, AccountEntity.class)
+                .setParameter("accountId", accountId)
+                .setParameter("userId", userId)
+                .setParameter("amount", amount)
+                .setParameter("depositDate", depositDate)
+                .getResultList();
+
+        return rows.stream().findFirst();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<LockedAccount> findWithCounters(String sql, Collection<UUID> accountIds, LocalDate periodStart,
+                                               LocalDate today) {
+        List<Object[]> rows = entityManager
+                .createNativeQuery(sql, AccountEntity.LOCKED_ACCOUNT_MAPPING)
+                .setParameter("accountIds", accountIds)
+                .setParameter("periodStart", periodStart)
+                .setParameter("today", today)
+                .getResultList();
+
+        return rows.stream()
+                .map(row -> new LockedAccount((AccountEntity) row[0],
+                        new SpendCounters((BigDecimal) row[1], (BigDecimal) row[2], (BigDecimal) row[3])))
+                .toList();
+    }
+}
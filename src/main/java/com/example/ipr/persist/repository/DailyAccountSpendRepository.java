@@ -0,0 +1,62 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.domain.SpendingAmountsDto;
+import com.example.ipr.persist.entities.DailyAccountSpendEntity;
+import com.example.ipr.persist.entities.DailyAccountSpendId;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface DailyAccountSpendRepository extends JpaRepository<DailyAccountSpendEntity, DailyAccountSpendId> {
+
+    /**
+     * Добавляет перевод к дневным итогам отправителя и получателя одним выражением.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO ipr.daily_account_spend (account_id, spend_date, currency_id, spent_amount, fee_amount, " +
+            "received_amount, deposited_amount) " +
+            "VALUES (:senderAccountId, :spendDate, :currencyId, :amount, :feeAmount, 0, 0), " +
+            "(:receiverAccountId, :spendDate, :currencyId, 0, 0, :amount, 0) " +
+            "ON CONFLICT (account_id, spend_date) DO UPDATE " +
+            "SET spent_amount = ipr.daily_account_spend.spent_amount + EXCLUDED.spent_amount, " +
+            "fee_amount = ipr.daily_account_spend.fee_amount + EXCLUDED.fee_amount, " +
+            "received_amount = ipr.daily_account_spend.received_amount + EXCLUDED.received_amount", nativeQuery = true)
+    void addTransfer(@Param("senderAccountId") UUID senderAccountId, @Param("receiverAccountId") UUID receiverAccountId,
+                     @Param("spendDate") LocalDate spendDate, @Param("currencyId") Integer currencyId,
+                     @Param("amount") BigDecimal amount, @Param("feeAmount") BigDecimal feeAmount);
+
+    @Modifying
+    @Query(value = "INSERT INTO ipr.daily_account_spend (account_id, spend_date, currency_id, spent_amount, fee_amount, " +
+            "received_amount, deposited_amount) " +
+            "VALUES (:accountId, :spendDate, :currencyId, 0, 0, 0, :amount) " +
+            "ON CONFLICT (account_id, spend_date) DO UPDATE " +
+            "SET deposited_amount = ipr.daily_account_spend.deposited_amount + EXCLUDED.deposited_amount", nativeQuery = true)
+    void addDeposit(@Param("accountId") UUID accountId, @Param("spendDate") LocalDate spendDate,
+                    @Param("currencyId") Integer currencyId, @Param("amount") BigDecimal amount);
+
+    @Query("SELECT new com.example.ipr.domain.SpendingAmountsDto(d.spendDate, d.currencyId, d.spentAmount, " +
+            "d.feeAmount, d.receivedAmount, d.depositedAmount) FROM DailyAccountSpendEntity d " +
+            "WHERE d.accountId = :accountId AND d.spendDate BETWEEN :from AND :to " +
+            "ORDER BY d.spendDate")
+    List<SpendingAmountsDto> findDaily(@Param("accountId") UUID accountId, @Param("from") LocalDate from,
+                                       @Param("to") LocalDate to);
+
+    /**
+     * Возвращает сумму исходящих переводов счета за дни с from по to включительно.
+     * Читает не больше одной строки на день окна по первичному ключу.
+     */
+    @Query("SELECT COALESCE(SUM(d.spentAmount), 0) FROM DailyAccountSpendEntity d " +
+            "WHERE d.accountId = :accountId AND d.spendDate BETWEEN :from AND :to")
+    BigDecimal sumSpent(@Param("accountId") UUID accountId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    List<DailyAccountSpendEntity> findByAccountIdInAndSpendDateGreaterThanEqual(Collection<UUID> accountIds, LocalDate from);
+}
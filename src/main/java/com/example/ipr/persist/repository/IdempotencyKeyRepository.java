@@ -0,0 +1,52 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.persist.entities.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO ipr.idempotency_keys (idempotency_key, operation, request_hash, completed, created_at, claimed_at, claim_id) " +
+            "VALUES (:key, :operation, :requestHash, false, now(), now(), :claimId) " +
+            "ON CONFLICT (idempotency_key) DO UPDATE " +
+            "SET operation = EXCLUDED.operation, request_hash = EXCLUDED.request_hash, claimed_at = EXCLUDED.claimed_at, " +
+            "claim_id = EXCLUDED.claim_id " +
+            "WHERE ipr.idempotency_keys.completed = false " +
+            "AND ipr.idempotency_keys.claimed_at < now() - :leaseSeconds * INTERVAL '1 second'",
+            nativeQuery = true)
+    int claim(@Param("key") String key, @Param("operation") String operation, @Param("requestHash") String requestHash,
+              @Param("claimId") UUID claimId, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Сохраняет результат, только если ключ все еще захвачен этим захватом и не выполнен.
+     *
+     * @return 1, если результат сохранен, иначе 0
+     */
+    @Modifying
+    @Query("UPDATE IdempotencyKeyEntity k SET k.completed = true, k.responseBody = :responseBody, " +
+            "k.errorMessage = :errorMessage " +
+            "WHERE k.idempotencyKey = :key AND k.claimId = :claimId AND k.completed = false")
+    int complete(@Param("key") String key, @Param("claimId") UUID claimId, @Param("responseBody") String responseBody,
+                 @Param("errorMessage") String errorMessage);
+
+    /**
+     * Освобождает невыполненный ключ, если он все еще захвачен этим захватом.
+     */
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeyEntity k " +
+            "WHERE k.idempotencyKey = :key AND k.claimId = :claimId AND k.completed = false")
+    void release(@Param("key") String key, @Param("claimId") UUID claimId);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyKeyEntity k " +
+            "WHERE (k.completed = true AND k.createdAt < :before) OR (k.completed = false AND k.claimedAt < :before)")
+    int deleteExpired(@Param("before") LocalDateTime before);
+}
@@ -4,6 +4,8 @@ import com.example.ipr.persist.entities.LimitEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -11,4 +13,6 @@ import java.util.UUID;
 public interface LimitRepository extends JpaRepository<LimitEntity, UUID> {
 
     Optional<LimitEntity> findByAccountId(UUID accountId);
+
+    List<LimitEntity> findByAccountIdIn(Collection<UUID> accountIds);
 }
@@ -0,0 +1,24 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.persist.entities.LimitRuleEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface LimitRuleRepository extends JpaRepository<LimitRuleEntity, UUID> {
+
+    List<LimitRuleEntity> findByAccountId(UUID accountId);
+
+    List<LimitRuleEntity> findByAccountIdIn(Collection<UUID> accountIds);
+
+    @Modifying
+    @Query("DELETE FROM LimitRuleEntity r WHERE r.accountId = :accountId")
+    void deleteByAccountId(@Param("accountId") UUID accountId);
+}
@@ -0,0 +1,23 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.persist.entities.OutboxEventEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface OutboxEventRepository extends JpaRepository<OutboxEventEntity, UUID>, OutboxEventRepositoryCustom {
+
+    /**
+     * Снимает захват с событий, доставка которых не удалась, чтобы следующий опрос взял их сразу,
+     * не дожидаясь истечения захвата.
+     */
+    @Modifying
+    @Query(value = "UPDATE ipr.outbox_events SET claimed_until = NULL WHERE id IN (:ids)", nativeQuery = true)
+    int release(@Param("ids") List<UUID> ids);
+}
@@ -0,0 +1,23 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.persist.entities.OutboxEventEntity;
+
+import java.util.List;
+
+/**
+ * Дополнительные операции над исходящими событиями, которые нельзя выразить декларативными методами Spring Data.
+ */
+public interface OutboxEventRepositoryCustom {
+
+    /**
+     * Захватывает на доставку самые старые события, не захваченные или с истекшим захватом, одним выражением
+     * UPDATE ... RETURNING. Строки, которые в этот момент захватывает другой экземпляр, пропускаются.
+     * Незахваченные события выбираются по частичному индексу по id, просроченные — по частичному индексу
+     * по сроку захвата; из обоих наборов захватываются limit самых старых. Идентификаторы упорядочены по времени.
+     *
+     * @param limit       Наибольшее число событий
+     * @param leaseMillis Срок захвата в миллисекундах
+     * @return Захваченные события в порядке записи
+     */
+    List<OutboxEventEntity> claimOldest(int limit, long leaseMillis);
+}
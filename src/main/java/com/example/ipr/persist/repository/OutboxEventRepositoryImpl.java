@@ -0,0 +1,45 @@
+package com.example.ipr.persist.repository;
+
+import com.example.ipr.persist.entities.OutboxEventEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Реализация {@link OutboxEventRepositoryCustom}. Подключается Spring Data к {@link OutboxEventRepository}
+ * по суффиксу Impl.
+ */
+public class OutboxEventRepositoryImpl implements OutboxEventRepositoryCustom {
+
+    /**
+     * Незахваченные и просроченные события выбираются отдельными подзапросами: условие с OR не позволяет
+     * использовать частичные индексы idx_outbox_events_unclaimed и idx_outbox_events_claimed_until.
+     */
+    private static final String CLAIM_OLDEST_QUERY =
+            "WITH unclaimed AS (SELECT id FROM ipr.outbox_events WHERE claimed_until IS NULL " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED), " +
+            "expired AS (SELECT id FROM ipr.outbox_events WHERE claimed_until IS NOT NULL AND claimed_until < now() " +
+            "ORDER BY claimed_until LIMIT :limit FOR UPDATE SKIP LOCKED) " +
+            "UPDATE ipr.outbox_events SET claimed_until = now() + :leaseMillis * INTERVAL '1 millisecond' " +
+            "WHERE id IN (SELECT id FROM (SELECT id FROM unclaimed UNION ALL SELECT id FROM expired) candidates " +
+            "ORDER BY id LIMIT :limit) " +
+            "RETURNING *";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<OutboxEventEntity> claimOldest(int limit, long leaseMillis) {
+        List<OutboxEventEntity> events = new ArrayList<>(entityManager.createNativeQuery(CLAIM_OLDEST_QUERY, OutboxEventEntity.class)
+                .setParameter("limit", limit)
+                .setParameter("leaseMillis", leaseMillis)
+                .getResultList());
+        // RETURNING не сохраняет порядок подзапроса
+        events.sort(Comparator.comparing(OutboxEventEntity::getCreatedAt).thenComparing(OutboxEventEntity::getId));
+        return events;
+    }
+}
@@ -1,38 +1,52 @@
 package com.example.ipr.persist.repository;
 
+import com.example.ipr.domain.ExpenseTransactionDto;
 import com.example.ipr.persist.entities.TransactionEntity;
-import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface TransactionRepository extends JpaRepository<TransactionEntity, UUID> {
 
-    @Query("SELECT t FROM TransactionEntity t WHERE t.accountId = :accountId AND t.amount < 0 ORDER BY t.transactionDate DESC")
-    List<TransactionEntity> findExpensesByAccountId(@Param("accountId") UUID accountId);
+    /**
+     * Выборка истории сразу в DTO: строки не попадают в контекст персистентности,
+     * поэтому для них не создаются сущности, снимки состояния и проверка изменений.
+     */
+    String SELECT_HISTORY_DTO = "SELECT new com.example.ipr.domain.ExpenseTransactionDto(" +
+            "t.id, t.amount, t.currencyId, t.transactionDate, t.description) FROM TransactionEntity t ";
 
-    @Query("SELECT t FROM TransactionEntity t " +
-            "WHERE t.accountId = :accountId " +
-            "AND t.description LIKE '%Комиссия за превышение лимита%'")
-    List<TransactionEntity> findTransactionsExceededLimit(@Param("accountId") UUID accountId);
+    @Query(SELECT_HISTORY_DTO + "WHERE t.accountId = :accountId AND t.amount < 0 " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<ExpenseTransactionDto> findExpensesByAccountId(@Param("accountId") UUID accountId, Pageable page);
+
+    @Query(SELECT_HISTORY_DTO + "WHERE t.accountId = :accountId AND t.amount < 0 " +
+            "AND (t.transactionDate, t.id) < (:transactionDate, :transactionId) " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<ExpenseTransactionDto> findExpensesByAccountIdAfter(@Param("accountId") UUID accountId,
+                                                             @Param("transactionDate") LocalDateTime transactionDate,
+                                                             @Param("transactionId") UUID transactionId,
+                                                             Pageable page);
 
-    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM TransactionEntity t " +
+    @Query(SELECT_HISTORY_DTO +
             "WHERE t.accountId = :accountId " +
-            "AND t.transactionDate >= date_trunc('month', CURRENT_DATE)")
-    BigDecimal getTotalSpentThisMonth(@Param("accountId") UUID accountId);
+            "AND t.type = com.example.ipr.enums.TransactionType.FEE " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<ExpenseTransactionDto> findTransactionsExceededLimit(@Param("accountId") UUID accountId, Pageable page);
 
-    @Query("SELECT COALESCE(SUM(t.amount), 0) FROM TransactionEntity t " +
+    @Query(SELECT_HISTORY_DTO +
             "WHERE t.accountId = :accountId " +
-            "AND t.amount < 0 " +
-            "AND t.transactionDate >= :startOfMonth")
-   BigDecimal getTotalSpentForMonth(@Param("accountId") UUID accountId, @Param("startOfMonth") LocalDateTime startOfMonth);
+            "AND t.type = com.example.ipr.enums.TransactionType.FEE " +
+            "AND (t.transactionDate, t.id) < (:transactionDate, :transactionId) " +
+            "ORDER BY t.transactionDate DESC, t.id DESC")
+    List<ExpenseTransactionDto> findTransactionsExceededLimitAfter(@Param("accountId") UUID accountId,
+                                                                   @Param("transactionDate") LocalDateTime transactionDate,
+                                                                   @Param("transactionId") UUID transactionId,
+                                                                   Pageable page);
 }
@@ -0,0 +1,127 @@
+package com.example.ipr.service;
+
+import com.example.ipr.persist.entities.AccountMonthlySpendEntity;
+import com.example.ipr.persist.entities.AccountMonthlySpendId;
+import com.example.ipr.persist.repository.AccountMonthlySpendRepository;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.example.ipr.persist.repository.DailyAccountSpendRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Сервис учета расходов счетов по месяцам.
+ * Вместо суммирования всех расходных транзакций за месяц хранит готовый счетчик,
+ * который увеличивается в той же транзакции, что и списание средств.
+ * Расходы за скользящее окно лимита складываются из дневных итогов счета.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountSpendService {
+
+    private final AccountMonthlySpendRepository accountMonthlySpendRepository;
+    private final AccountRepository accountRepository;
+    private final DailyAccountSpendRepository dailyAccountSpendRepository;
+
+    /**
+     * Возвращает первый день текущего месяца — ключ периода, за который считаются расходы.
+     *
+     * @return Первое число текущего месяца
+     */
+    public LocalDate getCurrentPeriod() {
+        return LocalDate.now().withDayOfMonth(1);
+    }
+
+    /**
+     * Возвращает сумму расходов счета за текущий месяц одним запросом по первичному ключу.
+     *
+     * @param accountId UUID счета
+     * @return Сумма расходов за текущий месяц, если данных нет — 0
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getSpentThisMonth(UUID accountId) {
+        return accountMonthlySpendRepository.findById(new AccountMonthlySpendId(accountId, getCurrentPeriod()))
+                .map(AccountMonthlySpendEntity::getSpentAmount)
+                .orElse(BigDecimal.ZERO);
+    }
+
+    /**
+     * Возвращает расходы счета за окно лимита: с начала месяца по счетчику расходов
+     * или за последние windowDays дней, включая текущий, по дневным итогам.
+     *
+     * @param accountId  UUID счета
+     * @param windowDays Длина скользящего окна в днях; null — календарный месяц
+     * @return Сумма расходов за окно, если данных нет — 0
+     */
+    @Transactional(readOnly = true)
+    public BigDecimal getSpentInWindow(UUID accountId, Integer windowDays) {
+        if (Objects.isNull(windowDays)) {
+            return getSpentThisMonth(accountId);
+        }
+        LocalDate today = LocalDate.now();
+        return dailyAccountSpendRepository.sumSpent(accountId, today.minusDays(windowDays - 1), today);
+    }
+
+    /**
+     * Увеличивает счетчик расходов счета за указанный период.
+     * Должен вызываться внутри транзакции, в которой происходит списание.
+     *
+     * @param accountId   UUID счета отправителя
+     * @param periodStart Первый день месяца списания
+     * @param amount      Списанная сумма (положительное число)
+     */
+    @Transactional
+    public void registerSpending(UUID accountId, LocalDate periodStart, BigDecimal amount) {
+        accountMonthlySpendRepository.addSpent(accountId, periodStart, amount);
+    }
+
+    /**
+     * Резервирует сумму перевода в счетчике расходов счета и возвращает расходы за месяц до резерва.
+     * Увеличение счетчика и чтение его значения выполняются одним выражением, поэтому решение о лимите,
+     * принятое по возвращенной сумме, учитывает все одновременные переводы с того же счета без отдельной
+     * блокировки лимита. Резерв отменяется вместе с откатом транзакции перевода.
+     *
+     * @param accountId   UUID счета отправителя
+     * @param periodStart Первый день месяца списания
+     * @param amount      Сумма перевода (положительное число)
+     * @return Расходы за месяц до перевода
+     */
+    @Transactional
+    public BigDecimal reserveSpending(UUID accountId, LocalDate periodStart, BigDecimal amount) {
+        return accountMonthlySpendRepository.reserve(accountId, periodStart, amount);
+    }
+
+    /**
+     * Сверяет счетчики текущего месяца с таблицей транзакций и пересчитывает расхождения.
+     * Перед пересчетом счета блокируются, поэтому одновременные переводы не теряют свои списания.
+     * Запускается по расписанию из параметра ipr.spend.rebuild-cron (в application.yml — ежедневно в 3:30;
+     * если параметр не задан, сверка выключена).
+     */
+    @Scheduled(cron = "${ipr.spend.rebuild-cron:-}")
+    @Transactional
+    public void rebuildCurrentPeriod() {
+        LocalDate periodStart = getCurrentPeriod();
+        List<UUID> mismatched = accountMonthlySpendRepository.findMismatchedAccounts(
+                periodStart.atStartOfDay(), periodStart.plusMonths(1).atStartOfDay());
+
+        if (mismatched.isEmpty()) {
+            log.info("Счетчики расходов за {} совпадают с транзакциями", periodStart);
+            return;
+        }
+
+        log.warn("Найдено {} расхождений счетчиков расходов за {}: {}", mismatched.size(), periodStart, mismatched);
+        accountRepository.lockAllById(mismatched);
+        int rebuilt = accountMonthlySpendRepository.rebuild(
+                mismatched, periodStart.atStartOfDay(), periodStart.plusMonths(1).atStartOfDay());
+        log.info("Пересчитано {} счетчиков расходов за {}", rebuilt, periodStart);
+    }
+}
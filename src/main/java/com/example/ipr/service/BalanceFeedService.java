@@ -0,0 +1,327 @@
+package com.example.ipr.service;
+
+import com.example.ipr.domain.event.BalanceChangedEvent;
+import com.example.ipr.persist.repository.AccountRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Лента изменений балансов счетов пользователя по Server-Sent Events.
+ * События операций после фиксации транзакции раскладываются по очередям подписчиков ограниченного размера;
+ * поток, зафиксировавший операцию, только добавляет событие в очередь и никогда не ждет клиента.
+ * Очереди разбирают потоки отправки, не больше одного потока на подписчика одновременно.
+ * Подписчик, чья очередь переполнена или чья отправка идет дольше send-timeout-ms, отключается: медленный клиент
+ * не может удерживать память и не задерживает остальных. Клиенту нужно переподключиться и перечитать балансы.
+ * Сама запись в сокет ограничена таймаутом записи контейнера (server.tomcat.connection-timeout): зависшая запись
+ * завершается ошибкой, и поток подписчика закрывается с ошибкой. Пока зависшая запись не завершилась, пул потоков
+ * отправки получает дополнительный поток, поэтому зависшие клиенты не занимают потоки остальных подписчиков.
+ * <p>
+ * Поток подписчика завершает тот, кто владеет его отправкой: поток отправки после последнего события
+ * или поток, закрывающий подписчика, если отправка не идет. Завершение не ставится в очередь потоков отправки
+ * и не ждет, пока они освободятся.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BalanceFeedService {
+
+    private static final String BALANCE_EVENT = "balance";
+
+    private final AccountRepository accountRepository;
+    private final MeterRegistry meterRegistry;
+
+    private final Map<UUID, Set<Subscriber>> subscribersByAccount = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @Value("${ipr.feed.buffer-size}")
+    private int bufferSize;
+
+    @Value("${ipr.feed.senders}")
+    private int senderCount;
+
+    @Value("${ipr.feed.timeout-ms}")
+    private long timeoutMillis;
+
+    @Value("${ipr.feed.send-timeout-ms}")
+    private long sendTimeoutMillis;
+
+    @Value("${ipr.feed.heartbeat-ms}")
+    private long heartbeatMillis;
+
+    private ThreadPoolExecutor senders;
+    private ScheduledExecutorService heartbeats;
+    private Counter droppedSubscribers;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = new ThreadPoolExecutor(senderCount, senderCount, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "balance-feed-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        droppedSubscribers = Counter.builder("ipr.feed.dropped")
+                .description("Подписчики ленты балансов, отключенные из-за переполнения очереди или долгой отправки")
+                .register(meterRegistry);
+        Gauge.builder("ipr.feed.subscribers", subscribers, Set::size)
+                .description("Активные подписчики ленты балансов")
+                .register(meterRegistry);
+
+        // Отдельный поток: общий планировщик @Scheduled занят перестроением расходов, обслуживанием партиций и т. п.
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "balance-feed-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeats.shutdown();
+        subscribers.forEach(subscriber -> close(subscriber, null));
+        senders.shutdown();
+    }
+
+    /**
+     * Подписывает клиента на изменения балансов всех счетов пользователя, существующих на момент подписки.
+     *
+     * @param userId UUID пользователя
+     * @return SSE-поток событий {@link BalanceChangedEvent}
+     */
+    public SseEmitter subscribe(UUID userId) {
+        List<UUID> accountIds = accountRepository.findIdsByUserId(userId);
+        Subscriber subscriber = new Subscriber(new SseEmitter(timeoutMillis), accountIds, new ArrayBlockingQueue<>(bufferSize));
+
+        subscriber.emitter.onCompletion(() -> close(subscriber, null));
+        subscriber.emitter.onTimeout(() -> close(subscriber, null));
+        subscriber.emitter.onError(e -> close(subscriber, null));
+
+        subscribers.add(subscriber);
+        accountIds.forEach(accountId ->
+                subscribersByAccount.computeIfAbsent(accountId, id -> ConcurrentHashMap.newKeySet()).add(subscriber));
+        log.info("Пользователь {} подписан на изменения балансов {} счетов", userId, accountIds.size());
+        return subscriber.emitter;
+    }
+
+    /**
+     * Раскладывает событие по очередям подписчиков счета. Вызывается после фиксации транзакции операции,
+     * а для операций вне транзакции (движок горячих счетов) — сразу.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onBalanceChanged(BalanceChangedEvent event) {
+        Set<Subscriber> accountSubscribers = subscribersByAccount.get(event.getAccountId());
+        if (Objects.isNull(accountSubscribers)) {
+            return;
+        }
+        accountSubscribers.forEach(subscriber ->
+                enqueue(subscriber, SseEmitter.event().name(BALANCE_EVENT).data(event, MediaType.APPLICATION_JSON)));
+    }
+
+    /**
+     * Отправляет подписчикам комментарий, чтобы прокси не закрывали простаивающие соединения,
+     * а оборванные соединения обнаруживались и освобождались. Подписчики, чья отправка идет дольше
+     * send-timeout-ms, отключаются, а на время их зависшей записи пул отправки получает дополнительный поток.
+     * Выполняется собственным потоком ленты раз в heartbeat-ms.
+     */
+    public void heartbeat() {
+        try {
+            long now = System.nanoTime();
+            long sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+            subscribers.forEach(subscriber -> {
+                long sendStartedAt = subscriber.sendStartedAt;
+                if (sendStartedAt != 0 && now - sendStartedAt > sendTimeoutNanos) {
+                    droppedSubscribers.increment();
+                    log.warn("Подписчик ленты балансов отключен: отправка события идет дольше {} мс", sendTimeoutMillis);
+                    if (subscriber.stalled.compareAndSet(false, true)) {
+                        resizeSenders(1);
+                        // запись могла завершиться до установки признака, и тогда поток вернуть некому
+                        if (subscriber.sendStartedAt == 0 && subscriber.stalled.compareAndSet(true, false)) {
+                            resizeSenders(-1);
+                        }
+                    }
+                    close(subscriber, null);
+                    return;
+                }
+                enqueue(subscriber, SseEmitter.event().comment("ping"));
+            });
+        } catch (RuntimeException e) {
+            log.error("Не удалось отправить подписчикам ленты балансов комментарий", e);
+        }
+    }
+
+    /**
+     * Ставит событие в очередь подписчика и планирует ее разбор. Если очередь переполнена,
+     * подписчик отключается с сообщением о причине.
+     */
+    private void enqueue(Subscriber subscriber, SseEmitter.SseEventBuilder event) {
+        if (!subscriber.queue.offer(event)) {
+            droppedSubscribers.increment();
+            log.warn("Подписчик ленты балансов отключен: очередь из {} событий переполнена", bufferSize);
+            close(subscriber, "Очередь событий переполнена, переподключитесь");
+            return;
+        }
+        scheduleDrain(subscriber);
+    }
+
+    /**
+     * Передает разбор очереди подписчика потоку отправки, если его еще никто не разбирает:
+     * признак разбора гарантирует не больше одного потока на подписчика.
+     */
+    private void scheduleDrain(Subscriber subscriber) {
+        if (subscriber.draining.compareAndSet(false, true)) {
+            senders.execute(() -> drain(subscriber));
+        }
+    }
+
+    /**
+     * Изменяет число потоков отправки. Максимум увеличивается раньше и уменьшается позже основного размера,
+     * чтобы основной размер не превышал максимум.
+     */
+    private synchronized void resizeSenders(int delta) {
+        if (delta > 0) {
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+        } else {
+            senders.setCorePoolSize(senders.getCorePoolSize() + delta);
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + delta);
+        }
+    }
+
+    /**
+     * Отправляет клиенту накопившиеся события. Если подписчик закрыт, пока шла отправка, завершает его поток,
+     * предварительно отправив сообщение о причине закрытия; если запись в сокет не удалась, завершает поток с ошибкой.
+     * Если событие пришло после последнего чтения очереди, но до снятия признака разбора, разбор планируется заново.
+     */
+    private void drain(Subscriber subscriber) {
+        try {
+            SseEmitter.SseEventBuilder event;
+            while (!subscriber.closed.get() && Objects.nonNull(event = subscriber.queue.poll())) {
+                send(subscriber, event);
+            }
+        } catch (IOException | IllegalStateException e) {
+            close(subscriber, null);
+            log.debug("Запись подписчику ленты балансов не удалась: {}", e.getMessage());
+            subscriber.emitter.completeWithError(e);
+            return;
+        }
+        if (subscriber.closed.get()) {
+            complete(subscriber, subscriber.closeReason);
+            return;
+        }
+        subscriber.draining.set(false);
+        if (subscriber.closed.get() && subscriber.draining.compareAndSet(false, true)) {
+            // подписчика закрыли, пока снимался признак разбора, и поток никто не завершил
+            complete(subscriber, null);
+        } else if (!subscriber.queue.isEmpty()) {
+            scheduleDrain(subscriber);
+        }
+    }
+
+    /**
+     * Записывает событие в поток подписчика, отмечая время начала записи для проверки send-timeout-ms.
+     * Если запись признана зависшей, после ее завершения пул отправки возвращается к прежнему размеру.
+     *
+     * @throws IOException Если запись в сокет не удалась или истек таймаут записи контейнера
+     */
+    private void send(Subscriber subscriber, SseEmitter.SseEventBuilder event) throws IOException {
+        subscriber.sendStartedAt = System.nanoTime();
+        try {
+            subscriber.emitter.send(event);
+        } finally {
+            subscriber.sendStartedAt = 0;
+            if (subscriber.stalled.compareAndSet(true, false)) {
+                resizeSenders(-1);
+            }
+        }
+    }
+
+    /**
+     * Сразу отписывает подписчика от всех счетов. Если отправка подписчику не идет, его поток завершается сразу
+     * без сообщения; иначе поток завершит поток отправки, когда текущая запись закончится.
+     *
+     * @param reason Сообщение клиенту перед закрытием; null — закрыть без сообщения
+     */
+    private void close(Subscriber subscriber, String reason) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriber.closeReason = reason;
+        subscribers.remove(subscriber);
+        subscriber.accountIds.forEach(accountId -> subscribersByAccount.computeIfPresent(accountId, (id, accountSubscribers) -> {
+            accountSubscribers.remove(subscriber);
+            return accountSubscribers.isEmpty() ? null : accountSubscribers;
+        }));
+        subscriber.queue.clear();
+        if (subscriber.draining.compareAndSet(false, true)) {
+            complete(subscriber, null);
+        }
+    }
+
+    /**
+     * Завершает поток подписчика, отправив перед этим сообщение о причине закрытия, если оно задано.
+     * Вызывается только владельцем отправки подписчика, поэтому не конкурирует с записью событий.
+     */
+    private void complete(Subscriber subscriber, String reason) {
+        try {
+            if (Objects.nonNull(reason)) {
+                send(subscriber, SseEmitter.event().name("closed").data(reason));
+            }
+            subscriber.emitter.complete();
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Поток подписчика уже закрыт: {}", e.getMessage());
+        }
+    }
+
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+        private final List<UUID> accountIds;
+        private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+        /**
+         * Текущая запись признана зависшей, и на время записи пул отправки увеличен на один поток.
+         */
+        private final AtomicBoolean stalled = new AtomicBoolean();
+        /**
+         * Время начала текущей отправки по {@link System#nanoTime()}; 0 — отправка не идет.
+         */
+        private volatile long sendStartedAt;
+        private volatile String closeReason;
+
+        private Subscriber(SseEmitter emitter, List<UUID> accountIds, BlockingQueue<SseEmitter.SseEventBuilder> queue) {
+            this.emitter = emitter;
+            this.accountIds = accountIds;
+            this.queue = queue;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.ipr.service;
+
+import com.example.ipr.domain.SpendingAmountsDto;
+import com.example.ipr.domain.SpendingSummaryDto;
+import com.example.ipr.enums.SummaryPeriod;
+import com.example.ipr.exceptions.BadRequestException;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.example.ipr.persist.repository.DailyAccountSpendRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Сервис дневных итогов движения средств по счетам.
+ * Итоги увеличиваются в тех же транзакциях, что переводы и пополнения, поэтому сводка за период
+ * читает по одной строке на день и не зависит от числа операций.
+ */
+@Service
+@RequiredArgsConstructor
+public class DailySpendService {
+
+    private final DailyAccountSpendRepository dailyAccountSpendRepository;
+    private final AccountRepository accountRepository;
+
+    @Value("${ipr.spending-summary.max-days}")
+    private long maxDays;
+
+    /**
+     * Добавляет перевод к итогам дня отправителя и получателя.
+     * Должен вызываться внутри транзакции, в которой выполняется перевод.
+     *
+     * @param senderAccountId   UUID счета отправителя
+     * @param receiverAccountId UUID счета получателя
+     * @param amount            Сумма перевода
+     * @param feeAmount         Комиссия или 0
+     * @param currencyId        ID валюты перевода
+     */
+    @Transactional
+    public void registerTransfer(UUID senderAccountId, UUID receiverAccountId, BigDecimal amount, BigDecimal feeAmount,
+                                 Integer currencyId) {
+        dailyAccountSpendRepository.addTransfer(senderAccountId, receiverAccountId, LocalDate.now(), currencyId,
+                amount, feeAmount);
+    }
+
+    /**
+     * Добавляет пополнение к итогам дня счета.
+     * Должен вызываться внутри транзакции, в которой пополняется счет.
+     *
+     * @param accountId  UUID счета
+     * @param currencyId ID валюты счета
+     * @param amount     Сумма пополнения
+     */
+    @Transactional
+    public void registerDeposit(UUID accountId, Integer currencyId, BigDecimal amount) {
+        dailyAccountSpendRepository.addDeposit(accountId, LocalDate.now(), currencyId, amount);
+    }
+
+    /**
+     * Формирует сводку движения средств счета за период по дневным итогам.
+     *
+     * @param accountId UUID счета
+     * @param from      Первый день периода включительно
+     * @param to        Последний день периода включительно
+     * @param period    Шаг разбиения: по дням или по месяцам
+     * @return Суммы по дням или месяцам и итоги периода по каждой валюте
+     * @throws BadRequestException Если счет не найден или период задан неверно
+     */
+    @Transactional(readOnly = true)
+    public SpendingSummaryDto getSummary(UUID accountId, LocalDate from, LocalDate to, SummaryPeriod period) {
+        if (from.isAfter(to)) {
+            throw new BadRequestException("Начало периода должно быть не позже его конца");
+        }
+        if (ChronoUnit.DAYS.between(from, to) >= maxDays) {
+            throw new BadRequestException("Период сводки не может быть длиннее " + maxDays + " дней");
+        }
+        if (!accountRepository.existsById(accountId)) {
+            throw new BadRequestException("Счет не найден");
+        }
+
+        List<SpendingAmountsDto> days = dailyAccountSpendRepository.findDaily(accountId, from, to);
+        List<SpendingAmountsDto> periods = period == SummaryPeriod.MONTH
+                ? aggregate(days, day -> day.withDayOfMonth(1))
+                : days;
+        return new SpendingSummaryDto(accountId, from, to, period, periods, aggregate(days, day -> from));
+    }
+
+    /**
+     * Складывает дневные итоги по периодам и валютам.
+     *
+     * @param days     Дневные итоги в порядке возрастания даты
+     * @param periodOf Начало периода, к которому относится день
+     * @return Итоги по периодам в порядке возрастания, внутри периода — по ID валюты
+     */
+    private List<SpendingAmountsDto> aggregate(List<SpendingAmountsDto> days, Function<LocalDate, LocalDate> periodOf) {
+        Map<LocalDate, Map<Integer, SpendingAmountsDto>> periods = new TreeMap<>();
+        for (SpendingAmountsDto day : days) {
+            LocalDate periodStart = periodOf.apply(day.getPeriodStart());
+            periods.computeIfAbsent(periodStart, key -> new TreeMap<>()).merge(day.getCurrencyId(),
+                    new SpendingAmountsDto(periodStart, day.getCurrencyId(), day.getSpentAmount(), day.getFeeAmount(),
+                            day.getReceivedAmount(), day.getDepositedAmount()),
+                    (total, next) -> new SpendingAmountsDto(periodStart, total.getCurrencyId(),
+                            total.getSpentAmount().add(next.getSpentAmount()),
+                            total.getFeeAmount().add(next.getFeeAmount()),
+                            total.getReceivedAmount().add(next.getReceivedAmount()),
+                            total.getDepositedAmount().add(next.getDepositedAmount())));
+        }
+        return periods.values().stream()
+                .flatMap(byCurrency -> byCurrency.values().stream())
+                .toList();
+    }
+}
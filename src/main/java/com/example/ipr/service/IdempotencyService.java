@@ -0,0 +1,399 @@
+package com.example.ipr.service;
+
+import com.example.ipr.config.ReplicaRoutingDataSource;
+import com.example.ipr.domain.IdempotentRequest;
+import com.example.ipr.enums.IdempotentOperation;
+import com.example.ipr.exceptions.BadRequestException;
+import com.example.ipr.exceptions.TransactionOutcome;
+import com.example.ipr.persist.entities.IdempotencyKeyEntity;
+import com.example.ipr.persist.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Сервис идемпотентного выполнения переводов и пополнений по заголовку Idempotency-Key.
+ * Ключ действует в пределах запросов одного пользователя. Результат первого запроса с ключом сохраняется
+ * в ipr.idempotency_keys и в ограниченном LRU-кэше, повторный запрос с тем же ключом получает сохраненный ответ,
+ * не обращаясь к счетам и лимитам. Дубликаты, пришедшие, пока первый запрос еще выполняется в этом экземпляре,
+ * ждут его результат.
+ * <p>
+ * Успешный результат сохраняет сама операция в своей транзакции ({@link #completeCurrent(Object)},
+ * {@link #complete(IdempotentRequest, Object)}), поэтому ключ отмечен выполненным тогда и только тогда,
+ * когда зафиксировано движение денег. Сохранение ограничено идентификатором захвата: операция, у которой
+ * ключ перехватили после истечения аренды, не может зафиксироваться. Поэтому незавершенный ключ с истекшей
+ * арендой означает, что операция не зафиксирована и уже не зафиксируется, и его можно захватить заново.
+ * Если исход операции неизвестен (ошибка при фиксации транзакции), он определяется по состоянию ключа
+ * в базе: до истечения аренды повторы отклоняются, после — получают сохраненный результат,
+ * если операция зафиксировалась, или выполняют ее впервые, если нет.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IdempotencyService {
+
+    private static final int MAX_KEY_LENGTH = 200;
+
+    private static final ThreadLocal<IdempotentRequest> CURRENT = new ThreadLocal<>();
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<String, CompletableFuture<StoredResult>> inFlight = new ConcurrentHashMap<>();
+
+    @Value("${ipr.idempotency.cache-size}")
+    private long cacheSize;
+
+    @Value("${ipr.idempotency.ttl-hours}")
+    private long ttlHours;
+
+    @Value("${ipr.idempotency.lease-seconds}")
+    private long leaseSeconds;
+
+    private Cache<String, StoredResult> completed;
+    private TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        completed = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofHours(ttlHours))
+                .build();
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Выполняет операцию не более одного раза для данного ключа идемпотентности пользователя.
+     * Операция должна сохранить свой результат в собственной транзакции через {@link #completeCurrent(Object)}
+     * или {@link #complete(IdempotentRequest, Object)}.
+     *
+     * @param userId       ID аутентифицированного пользователя, в пределах запросов которого действует ключ
+     * @param key          Ключ идемпотентности; если null, операция выполняется без сохранения результата
+     * @param operation    Тип операции
+     * @param request      Тело запроса; повтор ключа с другим телом отклоняется
+     * @param responseType Тип ответа для восстановления сохраненного результата
+     * @param action       Операция
+     * @return Результат операции или сохраненный результат первого запроса с этим ключом
+     * @throws BadRequestException Если операция отклонена (в том числе при первом запросе), ключ слишком длинный,
+     *                             использован для другого запроса или первый запрос с ключом еще выполняется
+     */
+    public <T> T execute(UUID userId, String key, IdempotentOperation operation, Object request, Class<T> responseType,
+                         Supplier<T> action) {
+        if (Objects.isNull(key)) {
+            return action.get();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Ключ идемпотентности длиннее " + MAX_KEY_LENGTH + " символов");
+        }
+
+        String scopedKey = userId + ":" + key;
+        String requestHash = hash(operation, request);
+        StoredResult cached = completed.getIfPresent(scopedKey);
+        if (Objects.nonNull(cached)) {
+            log.info("Повторный запрос {} с ключом {}: возвращен сохраненный результат", operation, scopedKey);
+            return replay(cached, requestHash, responseType);
+        }
+
+        CompletableFuture<StoredResult> own = new CompletableFuture<>();
+        CompletableFuture<StoredResult> running = inFlight.putIfAbsent(scopedKey, own);
+        if (Objects.nonNull(running)) {
+            log.info("Запрос {} с ключом {} уже выполняется, ожидаем его результат", operation, scopedKey);
+            return replay(await(running), requestHash, responseType);
+        }
+
+        try {
+            Optional<StoredResult> stored = findStored(scopedKey);
+            if (stored.isPresent()) {
+                own.complete(stored.get());
+                return replay(stored.get(), requestHash, responseType);
+            }
+            UUID claimId = UUID.randomUUID();
+            if (!claim(scopedKey, operation, requestHash, claimId)) {
+                StoredResult claimedElsewhere = findStored(scopedKey)
+                        .orElseThrow(() -> new BadRequestException("Запрос с этим ключом идемпотентности еще выполняется"));
+                own.complete(claimedElsewhere);
+                return replay(claimedElsewhere, requestHash, responseType);
+            }
+
+            return runClaimed(new IdempotentRequest(scopedKey, requestHash, claimId), responseType, action, own);
+        } catch (RuntimeException e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(scopedKey, own);
+        }
+    }
+
+    /**
+     * Возвращает ключ идемпотентности, захваченный запросом, который выполняется в текущем потоке,
+     * или null, если запрос выполняется без ключа. Используется, когда операция фиксируется в другом потоке.
+     */
+    public IdempotentRequest currentRequest() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Сохраняет успешный результат запроса, выполняемого в текущем потоке, в текущей транзакции операции.
+     * Если запрос выполняется без ключа, ничего не делает.
+     *
+     * @param response Ответ операции
+     */
+    public void completeCurrent(Object response) {
+        IdempotentRequest request = CURRENT.get();
+        if (Objects.nonNull(request)) {
+            complete(request, response);
+        }
+    }
+
+    /**
+     * Сохраняет успешный результат запроса в текущей транзакции операции.
+     *
+     * @param request  Захваченный ключ идемпотентности
+     * @param response Ответ операции
+     * @throws IllegalStateException Если нет активной транзакции или ключ перехвачен другим запросом;
+     *                               транзакция операции при этом должна откатиться
+     */
+    public void complete(IdempotentRequest request, Object response) {
+        completeInTransaction(request, new StoredResult(request.getRequestHash(), toJson(response), null));
+    }
+
+    /**
+     * Сохраняет отказ в операции в текущей транзакции, если отказ фиксируется вместе с другими операциями
+     * (например, в групповой транзакции журнала горячих счетов).
+     *
+     * @param request      Захваченный ключ идемпотентности
+     * @param errorMessage Текст отказа
+     */
+    public void reject(IdempotentRequest request, String errorMessage) {
+        completeInTransaction(request, new StoredResult(request.getRequestHash(), null, errorMessage));
+    }
+
+    /**
+     * Удаляет выполненные ключи и брошенные захваты старше ttl-hours.
+     */
+    @Scheduled(cron = "${ipr.idempotency.cleanup-cron:-}")
+    public void deleteExpired() {
+        int deleted = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.deleteExpired(LocalDateTime.now().minusHours(ttlHours)));
+        log.info("Удалено устаревших ключей идемпотентности: {}", deleted);
+    }
+
+    /**
+     * Выполняет операцию по уже захваченному ключу. Успешный результат сохраняет сама операция в своей транзакции.
+     * Отказ в операции ({@link BadRequestException}) сохраняется отдельно: операция при этом откатилась.
+     * При непредвиденной ошибке ключ освобождается, только если операция точно откатилась; если исход неизвестен,
+     * результат ищется в базе, а если его там нет — ключ остается захваченным до истечения аренды.
+     */
+    private <T> T runClaimed(IdempotentRequest request, Class<T> responseType, Supplier<T> action,
+                             CompletableFuture<StoredResult> own) {
+        T result;
+        CURRENT.set(request);
+        try {
+            result = action.get();
+        } catch (BadRequestException e) {
+            if (!request.isStored()) {
+                storeRejection(request, e.getMessage());
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            if (!TransactionOutcome.isUnknown(e)) {
+                transactionTemplate.executeWithoutResult(status ->
+                        idempotencyKeyRepository.release(request.getKey(), request.getClaimId()));
+                throw e;
+            }
+            StoredResult resolved = resolveUnknown(request, e);
+            own.complete(resolved);
+            return replay(resolved, request.getRequestHash(), responseType);
+        } finally {
+            CURRENT.remove();
+        }
+
+        if (!request.isStored()) {
+            throw new IllegalStateException("Операция с ключом идемпотентности " + request.getKey()
+                    + " не сохранила результат в своей транзакции");
+        }
+        StoredResult stored = new StoredResult(request.getRequestHash(), toJson(result), null);
+        own.complete(stored);
+        return result;
+    }
+
+    /**
+     * Определяет исход операции по ключу в базе: ключ отмечен выполненным в той же транзакции,
+     * что и движение денег, поэтому выполненный ключ означает, что операция зафиксирована.
+     *
+     * @throws RuntimeException Исходная ошибка, если результат в базе не найден или база недоступна
+     */
+    private StoredResult resolveUnknown(IdempotentRequest request, RuntimeException error) {
+        Optional<IdempotencyKeyEntity> entity;
+        try {
+            entity = ReplicaRoutingDataSource.onPrimary(() -> idempotencyKeyRepository.findById(request.getKey()));
+        } catch (RuntimeException e) {
+            error.addSuppressed(e);
+            entity = Optional.empty();
+        }
+        if (entity.isPresent() && entity.get().isCompleted()) {
+            log.warn("Исход запроса с ключом {} определен по базе: операция зафиксирована", request.getKey());
+            return toStoredResult(request.getKey(), entity.get());
+        }
+        log.error("Исход запроса с ключом {} неизвестен, ключ остается захваченным на {} с",
+                request.getKey(), leaseSeconds, error);
+        throw error;
+    }
+
+    private boolean claim(String key, IdempotentOperation operation, String requestHash, UUID claimId) {
+        Integer inserted = transactionTemplate.execute(status ->
+                idempotencyKeyRepository.claim(key, operation.name(), requestHash, claimId, leaseSeconds));
+        return inserted > 0;
+    }
+
+    /**
+     * Сохраняет результат по захваченному ключу в текущей транзакции; после ее фиксации отмечает запрос
+     * выполненным и кладет результат в кэш.
+     */
+    private void completeInTransaction(IdempotentRequest request, StoredResult result) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Результат запроса с ключом идемпотентности сохраняется только в транзакции операции");
+        }
+        int updated = idempotencyKeyRepository.complete(request.getKey(), request.getClaimId(),
+                result.getResponseBody(), result.getErrorMessage());
+        if (updated == 0) {
+            throw new IllegalStateException("Ключ идемпотентности " + request.getKey() + " захвачен другим запросом");
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                request.markStored();
+                completed.put(request.getKey(), result);
+            }
+        });
+    }
+
+    /**
+     * Сохраняет отказ в операции, которая откатилась; если ключ уже перехвачен, отказ не сохраняется.
+     */
+    private void storeRejection(IdempotentRequest request, String errorMessage) {
+        StoredResult result = new StoredResult(request.getRequestHash(), null, errorMessage);
+        Integer updated = transactionTemplate.execute(status -> idempotencyKeyRepository.complete(
+                request.getKey(), request.getClaimId(), null, errorMessage));
+        if (updated > 0) {
+            completed.put(request.getKey(), result);
+        }
+    }
+
+    /**
+     * Возвращает сохраненный результат ключа; если ключ захвачен, но результат еще не сохранен — бросает исключение.
+     * Захват с истекшей арендой не мешает повтору: операция этого захвата не зафиксирована и уже не зафиксируется,
+     * поэтому возвращается пустой результат, и ключ захватывается заново.
+     */
+    private Optional<StoredResult> findStored(String key) {
+        Optional<IdempotencyKeyEntity> entity = ReplicaRoutingDataSource.onPrimary(() -> idempotencyKeyRepository.findById(key));
+        if (entity.isEmpty()) {
+            return Optional.empty();
+        }
+        if (!entity.get().isCompleted()) {
+            if (entity.get().getClaimedAt().isBefore(LocalDateTime.now().minusSeconds(leaseSeconds))) {
+                log.warn("Захват ключа идемпотентности {} устарел, операция не зафиксирована и будет выполнена заново", key);
+                return Optional.empty();
+            }
+            throw new BadRequestException("Запрос с этим ключом идемпотентности еще выполняется");
+        }
+        return Optional.of(toStoredResult(key, entity.get()));
+    }
+
+    private StoredResult toStoredResult(String key, IdempotencyKeyEntity entity) {
+        StoredResult result = new StoredResult(entity.getRequestHash(), entity.getResponseBody(), entity.getErrorMessage());
+        completed.put(key, result);
+        return result;
+    }
+
+    private <T> T replay(StoredResult result, String requestHash, Class<T> responseType) {
+        if (!result.getRequestHash().equals(requestHash)) {
+            throw new BadRequestException("Ключ идемпотентности уже использован для другого запроса");
+        }
+        if (Objects.nonNull(result.getErrorMessage())) {
+            throw new BadRequestException(result.getErrorMessage());
+        }
+        if (Objects.isNull(result.getResponseBody())) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(result.getResponseBody(), responseType);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось прочитать сохраненный ответ", e);
+        }
+    }
+
+    private StoredResult await(CompletableFuture<StoredResult> running) {
+        try {
+            return running.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private String hash(IdempotentOperation operation, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(operation.name().getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось вычислить хеш запроса", e);
+        }
+    }
+
+    private String toJson(Object result) {
+        if (Objects.isNull(result)) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(result);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сохранить ответ", e);
+        }
+    }
+
+    /**
+     * Сохраненный результат запроса: хеш тела запроса и либо тело ответа, либо текст ошибки.
+     */
+    @Getter
+    @AllArgsConstructor
+    private static class StoredResult {
+
+        private final String requestHash;
+        private final String responseBody;
+        private final String errorMessage;
+    }
+}
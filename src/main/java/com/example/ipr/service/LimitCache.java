@@ -0,0 +1,187 @@
+package com.example.ipr.service;
+
+import com.example.ipr.config.ReplicaRoutingDataSource;
+import com.example.ipr.domain.AccountLimit;
+import com.example.ipr.domain.LimitPolicy;
+import com.example.ipr.domain.LimitRuleDto;
+import com.example.ipr.domain.event.LimitChangedEvent;
+import com.example.ipr.domain.event.LimitRulesChangedEvent;
+import com.example.ipr.mapper.LimitMapper;
+import com.example.ipr.persist.entities.LimitEntity;
+import com.example.ipr.persist.entities.LimitRuleEntity;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.example.ipr.persist.repository.LimitRepository;
+import com.example.ipr.persist.repository.LimitRuleRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Кэш скомпилированных правил лимитов ({@link LimitPolicy}) счетов с ограничением по числу счетов.
+ * Лимит и все правила счета загружаются вместе и компилируются один раз на промах.
+ * Отсутствие лимита и правил тоже кэшируется: у большинства счетов их нет.
+ * <p>
+ * Запись помнит версию лимита и правил счета (accounts.limits_version), с которой она загружена. Перевод читает
+ * версию вместе со строкой счета и передает ее в {@link #getPolicy(UUID, long)}: если версия новее закэшированной,
+ * правила перечитываются, поэтому изменение правил на другом экземпляре приложения учитывается первым же переводом.
+ * После фиксации изменения на этом экземпляре запись сбрасывается сразу. Промахи читаются с основной базы
+ * вне транзакции вызывающего кода, чтобы отставшая реплика не вернула в кэш старые правила.
+ * Записи живут не дольше ttl-seconds.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LimitCache {
+
+    private final AccountRepository accountRepository;
+    private final LimitRepository limitRepository;
+    private final LimitRuleRepository limitRuleRepository;
+    private final LimitMapper limitMapper;
+    private final MeterRegistry meterRegistry;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${ipr.limits.cache.size}")
+    private long cacheSize;
+
+    @Value("${ipr.limits.cache.ttl-seconds}")
+    private long ttlSeconds;
+
+    @Value("${ipr.limits.cache.warm-on-startup}")
+    private boolean warmOnStartup;
+
+    private Cache<UUID, VersionedPolicy> policies;
+    private TransactionTemplate outsideTransactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        outsideTransactionTemplate = new TransactionTemplate(transactionManager);
+        outsideTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+        policies = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, policies, "ipr.limits");
+    }
+
+    /**
+     * Возвращает правила лимитов счета не старше указанной версии из кэша или загружает и компилирует их.
+     *
+     * @param accountId     UUID счета
+     * @param limitsVersion Версия лимита и правил из прочитанной строки счета
+     * @return Политика счета; {@link LimitPolicy#NONE}, если нет ни лимита, ни правил
+     */
+    public LimitPolicy getPolicy(UUID accountId, long limitsVersion) {
+        VersionedPolicy cached = policies.getIfPresent(accountId);
+        if (Objects.nonNull(cached) && cached.limitsVersion() >= limitsVersion) {
+            return cached.policy();
+        }
+        return policies.asMap().compute(accountId, (id, current) ->
+                Objects.nonNull(current) && current.limitsVersion() >= limitsVersion ? current : load(id)).policy();
+    }
+
+    /**
+     * Возвращает правила лимитов счета из кэша или загружает и компилирует их, не сверяя версию с базой.
+     * Подходит только там, где правила не могут измениться на другом экземпляре приложения незаметно для этого.
+     *
+     * @param accountId UUID счета
+     * @return Политика счета; {@link LimitPolicy#NONE}, если нет ни лимита, ни правил
+     */
+    public LimitPolicy getPolicy(UUID accountId) {
+        return policies.get(accountId, this::load).policy();
+    }
+
+    /**
+     * Сбрасывает правила счета после фиксации изменения его лимита.
+     * Загрузка того же счета, начатая до фиксации, завершается раньше сброса и не оставляет в кэше старый лимит.
+     */
+    @TransactionalEventListener
+    public void onLimitChanged(LimitChangedEvent event) {
+        policies.invalidate(event.getAccountId());
+    }
+
+    /**
+     * Сбрасывает правила счета после фиксации замены его правил.
+     */
+    @TransactionalEventListener
+    public void onLimitRulesChanged(LimitRulesChangedEvent event) {
+        policies.invalidate(event.getAccountId());
+    }
+
+    /**
+     * Загружает в кэш лимиты и правила счетов, у которых установлен лимит, не больше размера кэша.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if (!warmOnStartup) {
+            return;
+        }
+        int size = (int) Math.min(cacheSize, Integer.MAX_VALUE);
+        ReplicaRoutingDataSource.onPrimary(() -> {
+            List<UUID> accountIds = limitRepository.findAll(PageRequest.of(0, size)).stream()
+                    .map(LimitEntity::getAccountId)
+                    .toList();
+            // Версии читаются раньше лимитов и правил: изменение между чтениями даст версию новее записи,
+            // и первый перевод перечитает правила
+            Map<UUID, Long> versions = new HashMap<>();
+            accountRepository.findLimitsVersions(accountIds).forEach(row -> versions.put((UUID) row[0], (Long) row[1]));
+            Map<UUID, LimitEntity> limits = limitRepository.findByAccountIdIn(versions.keySet()).stream()
+                    .collect(Collectors.toMap(LimitEntity::getAccountId, Function.identity()));
+            Map<UUID, List<LimitRuleDto>> rules = limitRuleRepository.findByAccountIdIn(versions.keySet()).stream()
+                    .collect(Collectors.groupingBy(LimitRuleEntity::getAccountId,
+                            Collectors.mapping(limitMapper::toLimitRuleDto, Collectors.toList())));
+            versions.forEach((accountId, version) -> policies.put(accountId, new VersionedPolicy(version,
+                    LimitPolicy.compile(Objects.isNull(limits.get(accountId)) ? null : toAccountLimit(limits.get(accountId)),
+                            rules.getOrDefault(accountId, List.of())))));
+            return null;
+        });
+        log.info("В кэш загружены правила лимитов {} счетов", policies.estimatedSize());
+    }
+
+    /**
+     * Загружает с основной базы версию, лимит и правила счета. Транзакция вызывающего кода приостанавливается:
+     * read-only транзакция (например, проверки лимита) уже может быть привязана к реплике, и чтение через ее
+     * соединение вернуло бы данные реплики. Версия читается первой, поэтому запись никогда не помечается
+     * версией новее загруженных правил.
+     */
+    private VersionedPolicy load(UUID accountId) {
+        return outsideTransactionTemplate.execute(status -> ReplicaRoutingDataSource.onPrimary(() -> {
+            long limitsVersion = accountRepository.findLimitsVersion(accountId).orElse(0L);
+            return new VersionedPolicy(limitsVersion, LimitPolicy.compile(
+                    limitRepository.findByAccountId(accountId).map(this::toAccountLimit).orElse(null),
+                    limitMapper.toLimitRuleDtoList(limitRuleRepository.findByAccountId(accountId))));
+        }));
+    }
+
+    private AccountLimit toAccountLimit(LimitEntity limit) {
+        return new AccountLimit(limit.getLimitAmount(), limit.getWindowDays());
+    }
+
+    /**
+     * Скомпилированные правила счета и версия, с которой они загружены.
+     */
+    private record VersionedPolicy(long limitsVersion, LimitPolicy policy) {
+    }
+}
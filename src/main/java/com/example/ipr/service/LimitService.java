@@ -1,27 +1,46 @@
 package com.example.ipr.service;
 
+import com.example.ipr.domain.CheckTransferDto;
 import com.example.ipr.domain.CheckTransferResponse;
+import com.example.ipr.domain.LimitPolicy;
+import com.example.ipr.domain.LimitRuleDto;
+import com.example.ipr.domain.LockedAccount;
+import com.example.ipr.domain.SpendCounters;
+import com.example.ipr.domain.event.LimitChangedEvent;
+import com.example.ipr.domain.event.LimitRulesChangedEvent;
+import com.example.ipr.enums.LimitAction;
+import com.example.ipr.enums.OutboxEventType;
 import com.example.ipr.exceptions.BadRequestException;
 import com.example.ipr.mapper.LimitMapper;
+import com.example.ipr.persist.entities.AccountEntity;
 import com.example.ipr.persist.entities.LimitEntity;
 import com.example.ipr.persist.entities.LimitSettingEntity;
 import com.example.ipr.persist.repository.AccountRepository;
 import com.example.ipr.persist.repository.LimitRepository;
+import com.example.ipr.persist.repository.LimitRuleRepository;
 import com.example.ipr.persist.repository.LimitSettingRepository;
-import com.example.ipr.persist.repository.TransactionRepository;
+import com.example.ipr.service.outbox.OutboxService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
-import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для управления лимитами на расходные операции.
- * Позволяет устанавливать лимиты, проверять их перед переводами и фиксировать изменения лимитов.
+ * Позволяет устанавливать лимиты и правила лимитов, проверять их перед переводами и фиксировать изменения лимитов.
  */
 @Service
 @RequiredArgsConstructor
@@ -29,32 +48,51 @@ import java.util.UUID;
 public class LimitService {
 
     private final LimitRepository limitRepository;
+    private final LimitRuleRepository limitRuleRepository;
     private final LimitSettingRepository limitSettingRepository;
     private final AccountRepository accountRepository;
-    private final TransactionRepository transactionRepository;
+    private final AccountSpendService accountSpendService;
     private final LimitMapper limitMapper;
+    private final OutboxService outboxService;
+    private final LimitCache limitCache;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${ipr.limits.check-batch.max-size}")
+    private int maxCheckBatchSize;
+
+    @Value("${ipr.limits.max-window-days}")
+    private int maxWindowDays;
+
+    @Value("${ipr.limits.max-rules}")
+    private int maxRules;
 
     /**
      * Устанавливает или обновляет лимит на расходные операции для указанного счета.
-     * Если лимит уже установлен, он будет обновлен на новую сумму.
+     * Если лимит уже установлен, он будет обновлен на новую сумму и окно.
+     * Лимит действует на календарный месяц или на скользящее окно из windowDays последних дней, включая текущий.
      *
      * @param accountId      UUID счета, для которого устанавливается лимит
      * @param newLimitAmount Новая сумма лимита
      * @param currencyId     ID валюты, в которой установлен лимит
+     * @param windowDays     Длина скользящего окна в днях; null — календарный месяц
      * @return Обновленный или новый лимит
-     * @throws BadRequestException Если счет не найден или новый лимит меньше уже потраченной суммы
+     * @throws BadRequestException Если счет не найден, окно слишком длинное или новый лимит меньше уже потраченной суммы
      */
     @Transactional
-    public LimitEntity setLimit(UUID accountId, BigDecimal newLimitAmount, Integer currencyId) {
-        log.info("Запрос на установку лимита: accountId={}, newLimitAmount={}, currencyId={}",
-                accountId, newLimitAmount, currencyId);
+    public LimitEntity setLimit(UUID accountId, BigDecimal newLimitAmount, Integer currencyId, Integer windowDays) {
+        log.info("Запрос на установку лимита: accountId={}, newLimitAmount={}, currencyId={}, windowDays={}",
+                accountId, newLimitAmount, currencyId, windowDays);
 
-        if (!accountRepository.existsById(accountId)) {
+        if (Objects.nonNull(windowDays) && (windowDays < 1 || windowDays > maxWindowDays)) {
+            throw new BadRequestException("Окно лимита должно быть от 1 до " + maxWindowDays + " дней");
+        }
+        // Новая версия правил блокирует строку счета до фиксации и сбрасывает закэшированные правила на всех экземплярах
+        if (accountRepository.incrementLimitsVersion(accountId) == 0) {
             log.error("Ошибка: Счет с id {} не найден", accountId);
             throw new BadRequestException("Счет не найден");
         }
 
-        BigDecimal totalSpent = getTotalSpentThisMonth(accountId);
+        BigDecimal totalSpent = accountSpendService.getSpentInWindow(accountId, windowDays);
 
         if (newLimitAmount.compareTo(totalSpent) < 0) {
             log.error("Ошибка: Новый лимит {} меньше уже потраченной суммы {}!", newLimitAmount, totalSpent);
@@ -65,11 +103,12 @@ public class LimitService {
 
         if (Objects.isNull(limit)) {
             log.info("Создание нового лимита для accountId={}", accountId);
-            limit = limitMapper.toLimitEntity(accountId, newLimitAmount, currencyId);
+            limit = limitMapper.toLimitEntity(accountId, newLimitAmount, currencyId, windowDays);
             limitRepository.save(limit);
         } else {
             log.warn("Обновление лимита для accountId={}", accountId);
             limit.setLimitAmount(newLimitAmount);
+            limit.setWindowDays(windowDays);
             limitRepository.save(limit);
         }
 
@@ -77,57 +116,159 @@ public class LimitService {
         limitSettingRepository.save(limitSetting);
         log.info("История изменений лимита сохранена: {}", limitSetting);
 
+        LimitChangedEvent event = new LimitChangedEvent(accountId, newLimitAmount, windowDays);
+        outboxService.append(OutboxEventType.LIMIT_CHANGED, accountId, event);
+        eventPublisher.publishEvent(event);
         return limit;
     }
 
     /**
-     * Возвращает общую сумму расходов за текущий месяц для указанного счета.
+     * Заменяет правила лимитов счета новым набором. Правила действуют вместе с лимитом счета:
+     * пороги на одну операцию, на расходы за день и за календарный месяц, при превышении которых
+     * перевод облагается комиссией по ставке правила или запрещается.
      *
-     * @param accountId UUID счета, для которого вычисляется сумма расходов
-     * @return Сумма расходов за текущий месяц, если данные отсутствуют — 0
+     * @param accountId UUID счета
+     * @param rules     Новый набор правил; пустой список удаляет все правила счета
+     * @return Сохраненные правила
+     * @throws BadRequestException Если счет не найден, правил слишком много или ставка комиссии задана неверно
      */
-    private BigDecimal getTotalSpentThisMonth(UUID accountId) {
-        return transactionRepository.getTotalSpentThisMonth(accountId);
+    @Transactional
+    public List<LimitRuleDto> setRules(UUID accountId, List<LimitRuleDto> rules) {
+        log.info("Запрос на замену правил лимитов: accountId={}, правил {}", accountId, rules.size());
+
+        if (rules.size() > maxRules) {
+            throw new BadRequestException("У счета может быть не больше " + maxRules + " правил лимитов");
+        }
+        rules.forEach(rule -> {
+            if (rule.getAction() == LimitAction.FEE
+                    && (Objects.isNull(rule.getFeeRate()) || rule.getFeeRate().compareTo(BigDecimal.ONE) > 0)) {
+                throw new BadRequestException("Ставка комиссии правила должна быть больше 0 и не больше 1");
+            }
+        });
+        if (accountRepository.incrementLimitsVersion(accountId) == 0) {
+            log.error("Ошибка: Счет с id {} не найден", accountId);
+            throw new BadRequestException("Счет не найден");
+        }
+
+        limitRuleRepository.deleteByAccountId(accountId);
+        limitRuleRepository.saveAll(rules.stream().map(rule -> limitMapper.toLimitRuleEntity(accountId, rule)).toList());
+
+        LimitRulesChangedEvent event = new LimitRulesChangedEvent(accountId, rules);
+        outboxService.append(OutboxEventType.LIMIT_RULES_CHANGED, accountId, event);
+        eventPublisher.publishEvent(event);
+        return rules;
+    }
+
+    /**
+     * Возвращает правила лимитов счета.
+     *
+     * @param accountId UUID счета
+     * @return Правила счета; пустой список, если правил нет
+     */
+    @Transactional(readOnly = true)
+    public List<LimitRuleDto> getRules(UUID accountId) {
+        return limitMapper.toLimitRuleDtoList(limitRuleRepository.findByAccountId(accountId));
     }
 
     /**
-     * Проверяет, превышает ли сумма перевода установленный лимит.
-     * Если лимит превышен, рассчитывается комиссия 5%.
+     * Проверяет перевод по лимиту и правилам лимитов счета.
+     * Счет с версией правил и расходами за день, месяц и окно лимита читается одним запросом, правила берутся
+     * из {@link LimitCache} и перечитываются, только если их версия изменилась. Результат предварительный:
+     * при самом переводе комиссия определяется по расходам, возвращенным резервом суммы в счетчике расходов.
      *
      * @param accountId UUID счета, с которого производится перевод
      * @param amount    Сумма перевода
-     * @return Объект {@link CheckTransferResponse}, содержащий информацию о необходимости комиссии
+     * @return Объект {@link CheckTransferResponse}, содержащий решение и комиссию
      */
     @Transactional(readOnly = true)
     public CheckTransferResponse checkTransferLimit(UUID accountId, BigDecimal amount) {
         log.info("Проверка лимита перед переводом: accountId={}, amount={}", accountId, amount);
 
-        // Получаем лимит для данного счёта
-        LimitEntity limit = limitRepository.findByAccountId(accountId).orElse(null);
-        if (Objects.isNull(limit)) {
+        LockedAccount account = accountRepository
+                .findForTransfer(List.of(accountId), accountSpendService.getCurrentPeriod(), LocalDate.now()).stream()
+                .findFirst()
+                .orElse(null);
+        LimitPolicy policy = Objects.isNull(account) ? LimitPolicy.NONE : getPolicy(account.getAccount());
+        if (policy.isEmpty()) {
             log.info("Лимит не установлен. Перевод возможен без ограничений.");
             return new CheckTransferResponse(true, false, BigDecimal.ZERO);
         }
+        return policy.evaluate(amount, account.getCounters());
+    }
 
-        // Вычисляем начало текущего месяца
-        LocalDateTime startOfMonth = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
+    /**
+     * Проверяет пакет переводов по лимитам и правилам их счетов.
+     * Счета пакета с версиями правил и расходами читаются одним запросом, поэтому время ответа
+     * почти не зависит от размера пакета. Каждая пара проверяется независимо, как при отдельном вызове
+     * {@link #checkTransferLimit}.
+     *
+     * @param checks Пары из счета и суммы перевода
+     * @return Результаты проверки в порядке следования пар в запросе
+     * @throws BadRequestException Если пакет пуст или превышает допустимый размер
+     */
+    @Transactional(readOnly = true)
+    public List<CheckTransferResponse> checkTransferLimits(List<CheckTransferDto> checks) {
+        if (checks.isEmpty() || checks.size() > maxCheckBatchSize) {
+            throw new BadRequestException("Пакет должен содержать от 1 до " + maxCheckBatchSize + " проверок");
+        }
+        log.info("Проверка лимитов перед переводом для {} счетов", checks.size());
 
-        // Получаем общую сумму расходных операций за этот месяц
-        BigDecimal totalSpentThisMonth = transactionRepository.getTotalSpentForMonth(accountId, startOfMonth);
+        Set<UUID> accountIds = checks.stream().map(CheckTransferDto::getAccountId).collect(Collectors.toSet());
+        Map<UUID, LockedAccount> accounts = accountRepository
+                .findForTransfer(accountIds, accountSpendService.getCurrentPeriod(), LocalDate.now()).stream()
+                .collect(Collectors.toMap(locked -> locked.getAccount().getId(), Function.identity()));
+        Map<UUID, LimitPolicy> policies = new HashMap<>();
+        accounts.forEach((accountId, locked) -> policies.put(accountId, getPolicy(locked.getAccount())));
 
-        BigDecimal remainingLimit = limit.getLimitAmount().subtract(totalSpentThisMonth);
+        SpendCounters noSpending = SpendCounters.empty();
+        return checks.stream()
+                .map(check -> {
+                    LockedAccount locked = accounts.get(check.getAccountId());
+                    return Objects.isNull(locked) ? LimitPolicy.NONE.evaluate(check.getAmount(), noSpending)
+                            : policies.get(check.getAccountId()).evaluate(check.getAmount(), locked.getCounters());
+                })
+                .toList();
+    }
 
-        log.info("Сумма расходов за месяц: {}, установленный лимит: {}", totalSpentThisMonth, limit.getLimitAmount());
+    /**
+     * Возвращает скомпилированные лимит и правила лимитов прочитанного счета из {@link LimitCache}.
+     * Правила перечитываются, если версия правил в строке счета новее закэшированной,
+     * в том числе после изменения правил на другом экземпляре приложения.
+     *
+     * @param account Счет, прочитанный из базы вместе с версией правил
+     * @return Политика счета; {@link LimitPolicy#NONE}, если нет ни лимита, ни правил
+     */
+    public LimitPolicy getPolicy(AccountEntity account) {
+        return limitCache.getPolicy(account.getId(), account.getLimitsVersion());
+    }
 
-        // Проверяем, превышает ли сумма новый лимит
-        if (amount.compareTo(remainingLimit) > 0) {
-            // Если превышает лимит, добавляем комиссию 5%
-            BigDecimal feeAmount = amount.multiply(BigDecimal.valueOf(0.05));
-            log.warn("Лимит превышен! К переводу добавлена комиссия {}", feeAmount);
+    /**
+     * Возвращает скомпилированные лимит и правила лимитов счета из {@link LimitCache} без сверки версии с базой.
+     * Используется движком горячих счетов, который работает в единственном экземпляре приложения
+     * и узнает об изменении правил из событий этого экземпляра.
+     *
+     * @param accountId UUID счета
+     * @return Политика счета; {@link LimitPolicy#NONE}, если нет ни лимита, ни правил
+     */
+    public LimitPolicy getPolicy(UUID accountId) {
+        return limitCache.getPolicy(accountId);
+    }
 
-            return new CheckTransferResponse(true, true, feeAmount);
+    /**
+     * Проверяет сумму перевода по уже загруженным правилам и расходам, не обращаясь к базе данных.
+     *
+     * @param policy   Лимит и правила счета отправителя
+     * @param amount   Сумма перевода
+     * @param counters Расходы счета отправителя до перевода
+     * @return Объект {@link CheckTransferResponse}, содержащий информацию о необходимости комиссии
+     * @throws BadRequestException Если перевод запрещен правилом лимита
+     */
+    public CheckTransferResponse evaluateTransferLimit(LimitPolicy policy, BigDecimal amount, SpendCounters counters) {
+        CheckTransferResponse response = policy.evaluate(amount, counters);
+        if (!response.isCanProceed()) {
+            log.warn("Перевод на сумму {} запрещен правилом лимита", amount);
+            throw new BadRequestException("Перевод превышает лимит счета");
         }
-
-        return new CheckTransferResponse(true, false, BigDecimal.ZERO);
+        return response;
     }
 }
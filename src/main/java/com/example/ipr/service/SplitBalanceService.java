@@ -0,0 +1,87 @@
+package com.example.ipr.service;
+
+import com.example.ipr.persist.entities.AccountBalanceSlotEntity;
+import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.repository.AccountBalanceSlotRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Сервис счетов с разделенным балансом.
+ * Зачисления на такой счет не изменяют строку счета, а добавляются к случайно выбранной части баланса
+ * в ipr.account_balance_slots, поэтому входящие платежи на популярный счет не выстраиваются в очередь
+ * за блокировкой одной строки. Полный баланс равен основному балансу счета плюс сумма всех частей;
+ * при списании части переносятся на основной баланс, только если его не хватает.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SplitBalanceService {
+
+    private final AccountBalanceSlotRepository accountBalanceSlotRepository;
+
+    @Value("${ipr.split-balance.ids}")
+    private Set<UUID> splitAccountIds;
+
+    @Value("${ipr.split-balance.slots}")
+    private int slotCount;
+
+    /**
+     * Проверяет, хранится ли баланс счета частями.
+     *
+     * @param accountId UUID счета
+     * @return true, если для счета включен разделенный баланс
+     */
+    public boolean isSplit(UUID accountId) {
+        return splitAccountIds.contains(accountId);
+    }
+
+    /**
+     * Зачисляет сумму на случайную часть баланса счета.
+     * Должен вызываться внутри транзакции, в которой происходит зачисление.
+     *
+     * @param accountId UUID счета с разделенным балансом
+     * @param amount    Сумма зачисления
+     */
+    public void credit(UUID accountId, BigDecimal amount) {
+        accountBalanceSlotRepository.addToSlot(accountId, ThreadLocalRandom.current().nextInt(slotCount), amount);
+    }
+
+    /**
+     * Переносит все части баланса на основной баланс счета.
+     * Счет должен быть заблокирован в текущей транзакции; части блокируются только на время переноса.
+     *
+     * @param account Заблокированный счет с разделенным балансом
+     */
+    public void collect(AccountEntity account) {
+        List<AccountBalanceSlotEntity> slots = accountBalanceSlotRepository.findNonEmptyForUpdate(account.getId());
+        BigDecimal collected = BigDecimal.ZERO;
+        for (AccountBalanceSlotEntity slot : slots) {
+            collected = collected.add(slot.getBalance());
+            slot.setBalance(BigDecimal.ZERO);
+        }
+        account.setBalance(account.getBalance().add(collected));
+        log.debug("На основной баланс счета {} перенесено {} из {} частей", account.getId(), collected, slots.size());
+    }
+
+    /**
+     * Возвращает полный баланс счета: основной баланс плюс все части.
+     *
+     * @param account Счет
+     * @return Полный баланс счета
+     */
+    public BigDecimal getTotalBalance(AccountEntity account) {
+        if (!isSplit(account.getId())) {
+            return account.getBalance();
+        }
+        return account.getBalance().add(accountBalanceSlotRepository.sumBalance(account.getId()));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.ipr.service;
+
+import com.example.ipr.domain.StatementRowDto;
+import com.example.ipr.enums.StatementFormat;
+import com.example.ipr.enums.TransactionType;
+import com.example.ipr.exceptions.BadRequestException;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import javax.sql.DataSource;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Сервис выгрузки выписки по счету.
+ * Строки читаются серверным курсором PostgreSQL порциями по fetch-size и сразу пишутся в ответ,
+ * без сущностей и контекста персистентности, поэтому расход памяти не зависит от числа операций счета.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class StatementExportService {
+
+    private static final String STATEMENT_QUERY = "SELECT t.id, t.type, t.amount, t.currency_id, t.transaction_date, t.description " +
+            "FROM ipr.transactions t " +
+            "WHERE t.account_id = ? AND t.transaction_date >= ? AND t.transaction_date < ? " +
+            "ORDER BY t.transaction_date, t.id";
+
+    private static final String CSV_HEADER = "transaction_id,transaction_date,type,amount,currency_id,description";
+
+    /**
+     * Разделитель строк CSV по RFC 4180.
+     */
+    private static final String CSV_LINE_END = "\r\n";
+
+    private final DataSource dataSource;
+    private final PlatformTransactionManager transactionManager;
+    private final AccountRepository accountRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${ipr.statement.fetch-size}")
+    private int fetchSize;
+
+    private JdbcTemplate statementJdbcTemplate;
+    private TransactionTemplate readOnlyTemplate;
+
+    @PostConstruct
+    public void init() {
+        statementJdbcTemplate = new JdbcTemplate(dataSource);
+        statementJdbcTemplate.setFetchSize(fetchSize);
+        readOnlyTemplate = new TransactionTemplate(transactionManager);
+        readOnlyTemplate.setReadOnly(true);
+    }
+
+    /**
+     * Готовит потоковую выгрузку операций счета за период.
+     * Драйвер PostgreSQL использует серверный курсор только внутри транзакции, поэтому чтение
+     * выполняется в read-only транзакции, открытой на время записи ответа.
+     *
+     * @param accountId UUID счета
+     * @param from      Первый день периода включительно; null — с начала истории
+     * @param to        Последний день периода включительно; null — по текущий момент
+     * @param format    Формат выгрузки
+     * @return Тело ответа, которое пишет операции по мере чтения из базы
+     * @throws BadRequestException Если счет не найден или период задан неверно
+     */
+    public StreamingResponseBody export(UUID accountId, LocalDate from, LocalDate to, StatementFormat format) {
+        if (!accountRepository.existsById(accountId)) {
+            throw new BadRequestException("Счет не найден");
+        }
+        LocalDateTime periodStart = Objects.isNull(from) ? LocalDateTime.of(1970, 1, 1, 0, 0) : from.atStartOfDay();
+        LocalDateTime periodEnd = Objects.isNull(to) ? LocalDateTime.now().plusDays(1) : to.plusDays(1).atStartOfDay();
+        if (!periodStart.isBefore(periodEnd)) {
+            throw new BadRequestException("Начало периода должно быть не позже его конца");
+        }
+
+        return outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            if (format == StatementFormat.CSV) {
+                writer.write(CSV_HEADER);
+                writer.write(CSV_LINE_END);
+            }
+            long[] rows = {0};
+            readOnlyTemplate.executeWithoutResult(status -> statementJdbcTemplate.query(STATEMENT_QUERY, resultSet -> {
+                writeRow(writer, toDto(resultSet), format);
+                rows[0]++;
+            }, accountId, Timestamp.valueOf(periodStart), Timestamp.valueOf(periodEnd)));
+            writer.flush();
+            log.info("Выгружена выписка по счету {}: {} операций в формате {}", accountId, rows[0], format);
+        };
+    }
+
+    /**
+     * Читает строку выписки из текущей строки курсора.
+     */
+    private StatementRowDto toDto(ResultSet resultSet) throws SQLException {
+        return new StatementRowDto(
+                resultSet.getObject("id", UUID.class),
+                TransactionType.valueOf(resultSet.getString("type")),
+                resultSet.getBigDecimal("amount"),
+                resultSet.getInt("currency_id"),
+                resultSet.getTimestamp("transaction_date").toLocalDateTime(),
+                resultSet.getString("description"));
+    }
+
+    /**
+     * Пишет строку выписки в ответ: в CSV — поля через запятую со строкой, завершенной CRLF,
+     * в NDJSON — JSON-объект со строкой, завершенной LF.
+     */
+    private void writeRow(Writer writer, StatementRowDto row, StatementFormat format) {
+        try {
+            if (format == StatementFormat.CSV) {
+                writer.write(row.getTransactionId() + "," + row.getTransactionDate() + "," + row.getType()
+                        + "," + row.getAmount().toPlainString() + "," + row.getCurrencyId() + "," + csvField(row.getDescription()));
+                writer.write(CSV_LINE_END);
+            } else {
+                writer.write(objectMapper.writeValueAsString(row));
+                writer.write('\n');
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось записать строку выписки", e);
+        }
+    }
+
+    /**
+     * Экранирует поле CSV по RFC 4180: поле в кавычках, кавычки внутри удваиваются.
+     */
+    private String csvField(String value) {
+        if (Objects.isNull(value)) {
+            return "";
+        }
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.ipr.service;
+
+import com.example.ipr.domain.TransactionPageDto;
+import com.example.ipr.domain.event.TransactionsRecordedEvent;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш страниц истории операций счета с ограничением по числу страниц.
+ * Каждому счету присвоено поколение, которое входит в ключ страницы; после фиксации транзакции,
+ * записавшей проводки по счету, поколение меняется, и все закэшированные страницы счета перестают находиться.
+ * Одновременные промахи по одному ключу загружаются одним запросом, остальные вызовы ждут его результат.
+ * Страницы живут не дольше ttl-seconds, что ограничивает устаревание при чтении с отстающей реплики.
+ */
+@Component
+@RequiredArgsConstructor
+public class TransactionHistoryCache {
+
+    /**
+     * Вид истории операций.
+     */
+    public enum Kind {
+        EXPENSES,
+        EXCEEDED_LIMIT
+    }
+
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong generationSequence = new AtomicLong();
+
+    @Value("${ipr.history.cache.size}")
+    private long cacheSize;
+
+    @Value("${ipr.history.cache.ttl-seconds}")
+    private long ttlSeconds;
+
+    private Cache<UUID, Long> generations;
+    private Cache<PageKey, TransactionPageDto> pages;
+
+    @PostConstruct
+    public void init() {
+        // Поколение вытесненного счета при следующем обращении выдается заново и не совпадает ни с одним прежним
+        generations = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+        pages = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, pages, "ipr.history.pages");
+    }
+
+    /**
+     * Возвращает страницу истории из кэша или загружает ее.
+     *
+     * @param accountId UUID счета
+     * @param kind      Вид истории
+     * @param cursor    Курсор страницы; null — первая страница
+     * @param pageSize  Размер страницы
+     * @param loader    Загрузка страницы из базы данных
+     * @return Страница истории
+     */
+    public TransactionPageDto get(UUID accountId, Kind kind, String cursor, int pageSize, Supplier<TransactionPageDto> loader) {
+        long generation = generations.get(accountId, id -> generationSequence.incrementAndGet());
+        return pages.get(new PageKey(accountId, generation, kind, cursor, pageSize), key -> loader.get());
+    }
+
+    /**
+     * Сбрасывает страницы счетов, по которым зафиксированы новые проводки.
+     */
+    @TransactionalEventListener
+    public void onTransactionsRecorded(TransactionsRecordedEvent event) {
+        event.getAccountIds().forEach(accountId -> generations.put(accountId, generationSequence.incrementAndGet()));
+    }
+
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    private static class PageKey {
+
+        private final UUID accountId;
+        private final long generation;
+        private final Kind kind;
+        private final String cursor;
+        private final int pageSize;
+    }
+}
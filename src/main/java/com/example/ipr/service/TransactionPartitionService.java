@@ -0,0 +1,109 @@
+package com.example.ipr.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Обслуживание месячных секций таблицы ipr.transactions.
+ * Заранее создает секции на months-ahead месяцев вперед, чтобы вставка транзакции не упала
+ * из-за отсутствующей секции, и отсоединяет секции старше retention-months.
+ * Отсоединенная секция остается отдельной таблицей и может быть выгружена в архив или удалена вручную.
+ * <p>
+ * Секции создаются и при старте приложения, не дожидаясь расписания. Строки за месяцы без секции попадают
+ * в секцию по умолчанию ipr.transactions_default и переносятся в месячную секцию при ее создании;
+ * если после обслуживания в секции по умолчанию остались строки, в журнал пишется предупреждение.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TransactionPartitionService {
+
+    private static final Pattern PARTITION_NAME = Pattern.compile("transactions_y(\\d{4})m(\\d{2})");
+
+    private static final String FIND_PARTITIONS_QUERY = """
+            SELECT c.relname
+            FROM pg_inherits i
+                     JOIN pg_class c ON c.oid = i.inhrelid
+            WHERE i.inhparent = 'ipr.transactions'::regclass
+            """;
+
+    private static final String COUNT_DEFAULT_PARTITION_QUERY = "SELECT count(*) FROM ipr.transactions_default";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${ipr.transactions.partitions.months-ahead}")
+    private int monthsAhead;
+
+    @Value("${ipr.transactions.partitions.retention-months}")
+    private int retentionMonths;
+
+    /**
+     * Создает недостающие секции при старте приложения, чтобы вставка не зависела от первого запуска по расписанию.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createPartitionsOnStartup() {
+        createPartitions(YearMonth.now());
+    }
+
+    /**
+     * Создает недостающие секции и отсоединяет устаревшие.
+     * Запускается по расписанию из параметра ipr.transactions.partitions.maintenance-cron.
+     */
+    @Scheduled(cron = "${ipr.transactions.partitions.maintenance-cron:-}")
+    public void maintainPartitions() {
+        YearMonth currentMonth = YearMonth.now();
+        createPartitions(currentMonth);
+        if (retentionMonths > 0) {
+            detachPartitionsBefore(currentMonth.minusMonths(retentionMonths));
+        }
+    }
+
+    /**
+     * Создает секции с текущего месяца по months-ahead включительно; существующие секции не затрагиваются.
+     */
+    private void createPartitions(YearMonth currentMonth) {
+        for (int i = 0; i <= monthsAhead; i++) {
+            LocalDate monthStart = currentMonth.plusMonths(i).atDay(1);
+            String partition = jdbcTemplate.queryForObject(
+                    "SELECT ipr.create_transactions_partition(?)", String.class, monthStart);
+            log.debug("Секция транзакций {} за {} на месте", partition, monthStart);
+        }
+        Long unpartitioned = jdbcTemplate.queryForObject(COUNT_DEFAULT_PARTITION_QUERY, Long.class);
+        if (Objects.nonNull(unpartitioned) && unpartitioned > 0) {
+            log.warn("В секции транзакций по умолчанию {} строк за месяцы без секции", unpartitioned);
+        }
+    }
+
+    /**
+     * Отсоединяет от ipr.transactions секции за месяцы раньше указанного.
+     *
+     * @param oldestKept Самый ранний месяц, секция которого остается в таблице
+     */
+    private void detachPartitionsBefore(YearMonth oldestKept) {
+        List<String> partitions = jdbcTemplate.queryForList(FIND_PARTITIONS_QUERY, String.class);
+        for (String partition : partitions) {
+            Matcher matcher = PARTITION_NAME.matcher(partition);
+            if (!matcher.matches()) {
+                continue;
+            }
+            YearMonth month = YearMonth.of(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)));
+            if (month.isBefore(oldestKept)) {
+                jdbcTemplate.execute("ALTER TABLE ipr.transactions DETACH PARTITION ipr." + partition);
+                log.info("Секция транзакций {} за {} отсоединена", partition, month);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.ipr.service;
+
+import com.example.ipr.domain.event.TransactionsRecordedEvent;
+import com.example.ipr.domain.event.TransferCompletedEvent;
+import com.example.ipr.enums.OutboxEventType;
+import com.example.ipr.enums.TransactionType;
+import com.example.ipr.mapper.TransactionMapper;
+import com.example.ipr.persist.entities.TransactionEntity;
+import com.example.ipr.persist.repository.TransactionRepository;
+import com.example.ipr.service.outbox.OutboxService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Запись проводок по счетам.
+ * Проводки добавляются в контекст персистентности текущей транзакции и вставляются пачкой при его сбросе;
+ * вместе с ними обновляются дневные итоги счетов и записывается событие для внешних сервисов,
+ * а о затронутых счетах публикуется {@link TransactionsRecordedEvent}.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionRecordService {
+
+    private final TransactionRepository transactionRepository;
+    private final TransactionMapper transactionMapper;
+    private final DailySpendService dailySpendService;
+    private final OutboxService outboxService;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Записывает проводки перевода: списание у отправителя, зачисление получателю и, если она взята,
+     * комиссию за превышение лимита. Зачисление и комиссия ссылаются на проводку списания;
+     * ее идентификатор выдается при добавлении в контекст, поэтому связь не требует отдельного обновления.
+     *
+     * @param senderAccountId   UUID счета отправителя
+     * @param receiverAccountId UUID счета получателя
+     * @param amount            Сумма перевода
+     * @param feeAmount         Комиссия или 0
+     * @param currencyId        ID валюты перевода
+     */
+    public void recordTransfer(UUID senderAccountId, UUID receiverAccountId, BigDecimal amount, BigDecimal feeAmount,
+                               Integer currencyId) {
+        if (Objects.isNull(currencyId)) {
+            throw new IllegalStateException("Currency ID не может быть null!");
+        }
+
+        TransactionEntity senderTransaction = transactionRepository.save(transactionMapper.toTransactionEntity(
+                senderAccountId, amount.negate(), currencyId, "Перевод на счет " + receiverAccountId,
+                TransactionType.TRANSFER_OUT, null));
+
+        List<TransactionEntity> related = new ArrayList<>(2);
+        related.add(transactionMapper.toTransactionEntity(
+                receiverAccountId, amount, currencyId, "Перевод от счета " + senderAccountId,
+                TransactionType.TRANSFER_IN, senderTransaction.getId()));
+        if (feeAmount.signum() > 0) {
+            related.add(transactionMapper.toTransactionEntity(
+                    senderAccountId, feeAmount.negate(), currencyId, "Комиссия за превышение лимита по переводу на счет " + receiverAccountId,
+                    TransactionType.FEE, senderTransaction.getId()));
+        }
+        transactionRepository.saveAll(related);
+        dailySpendService.registerTransfer(senderAccountId, receiverAccountId, amount, feeAmount, currencyId);
+        outboxService.append(OutboxEventType.TRANSFER, senderAccountId, new TransferCompletedEvent(senderTransaction.getId(),
+                senderAccountId, receiverAccountId, amount, feeAmount, currencyId, senderTransaction.getTransactionDate()));
+        eventPublisher.publishEvent(new TransactionsRecordedEvent(Set.of(senderAccountId, receiverAccountId)));
+    }
+}
@@ -1,24 +1,58 @@
 package com.example.ipr.service;
 
 import com.example.ipr.domain.CheckTransferResponse;
+import com.example.ipr.domain.CreditedAccount;
 import com.example.ipr.domain.ExpenseTransactionDto;
+import com.example.ipr.domain.LockedAccount;
+import com.example.ipr.domain.SpendCounters;
+import com.example.ipr.domain.TransactionCursor;
+import com.example.ipr.domain.TransactionPageDto;
+import com.example.ipr.domain.TransferBatchResultDto;
+import com.example.ipr.domain.TransferRequestDto;
+import com.example.ipr.domain.event.BalanceChangedEvent;
+import com.example.ipr.domain.event.DepositCompletedEvent;
+import com.example.ipr.enums.OutboxEventType;
+import com.example.ipr.enums.TransactionType;
+import com.example.ipr.enums.TransferMode;
 import com.example.ipr.exceptions.BadRequestException;
-import com.example.ipr.mapper.TransactionMapper;
 import com.example.ipr.persist.entities.AccountEntity;
-import com.example.ipr.persist.entities.TransactionEntity;
 import com.example.ipr.persist.repository.AccountRepository;
 import com.example.ipr.persist.repository.TransactionRepository;
+import com.example.ipr.service.engine.HotAccountEngine;
+import com.example.ipr.service.outbox.OutboxService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Isolation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
-import java.util.Collections;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
 
 /**
  * Сервис для управления транзакциями.
@@ -29,44 +63,179 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class TransactionService {
 
+    /**
+     * Порядок UUID, совпадающий с порядком типа uuid в PostgreSQL (беззнаковое сравнение байтов).
+     * Строки счетов в одной транзакции блокируются в этом порядке.
+     */
+    private static final Comparator<UUID> ACCOUNT_ID_ORDER = Comparator
+            .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+            .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
     private final AccountRepository accountRepository;
-    private final TransactionMapper transactionMapper;
     private final TransactionRepository transactionRepository;
+    private final TransactionRecordService transactionRecordService;
+    private final TransactionHistoryCache transactionHistoryCache;
+    private final DailySpendService dailySpendService;
     private final LimitService limitService;
+    private final AccountSpendService accountSpendService;
+    private final HotAccountEngine hotAccountEngine;
+    private final SplitBalanceService splitBalanceService;
+    private final OutboxService outboxService;
+    private final IdempotencyService idempotencyService;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationEventPublisher eventPublisher;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${ipr.transfer.batch.max-size}")
+    private int maxBatchSize;
+
+    @Value("${ipr.history.default-page-size}")
+    private int defaultPageSize;
+
+    @Value("${ipr.history.max-page-size}")
+    private int maxPageSize;
+
+    @Value("${ipr.transfer.mode}")
+    private TransferMode transferMode;
+
+    @Value("${ipr.transfer.optimistic.max-attempts}")
+    private int optimisticMaxAttempts;
+
+    @Value("${ipr.transfer.optimistic.backoff-min-ms}")
+    private long optimisticBackoffMinMillis;
+
+    @Value("${ipr.transfer.optimistic.backoff-max-ms}")
+    private long optimisticBackoffMaxMillis;
+
+    private TransactionTemplate transferTemplate;
+    private TransactionTemplate optimisticTransferTemplate;
+    private TransactionTemplate depositTemplate;
+
+    private Counter optimisticConflicts;
+    private Counter optimisticExhausted;
+    private DistributionSummary optimisticAttempts;
+
+    /**
+     * Переводы и пополнения открывают транзакцию сами: операции над горячими счетами
+     * выполняются движком и не должны удерживать соединение с базой, пока ждут записи журнала,
+     * а оптимистический перевод повторяется целиком в новой транзакции.
+     */
+    @PostConstruct
+    public void init() {
+        transferTemplate = new TransactionTemplate(transactionManager);
+        transferTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        optimisticTransferTemplate = new TransactionTemplate(transactionManager);
+        optimisticTransferTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+        depositTemplate = new TransactionTemplate(transactionManager);
+
+        optimisticConflicts = Counter.builder("ipr.transfer.optimistic.conflicts")
+                .description("Конфликты версий счетов при оптимистическом переводе")
+                .register(meterRegistry);
+        optimisticExhausted = Counter.builder("ipr.transfer.optimistic.exhausted")
+                .description("Оптимистические переводы, отклоненные после исчерпания повторов")
+                .register(meterRegistry);
+        optimisticAttempts = DistributionSummary.builder("ipr.transfer.optimistic.attempts")
+                .description("Число попыток на один оптимистический перевод")
+                .register(meterRegistry);
+    }
 
     /**
-     * Получает список всех расходных транзакций для указанного счета.
+     * Получает страницу расходных транзакций счета, от новых к старым.
+     * Страницы кэшируются до записи новых проводок по счету (см. {@link TransactionHistoryCache}).
      *
      * @param accountId UUID счета, для которого запрашиваются транзакции
-     * @return Список объектов {@link ExpenseTransactionDto}, представляющих расходные транзакции
+     * @param cursor    Курсор из предыдущей страницы; null — первая страница
+     * @param pageSize  Размер страницы; null — размер по умолчанию, больше максимального — ограничивается им
+     * @return Страница расходных транзакций и курсор следующей страницы
+     * @throws BadRequestException Если курсор некорректен
      */
-    public List<ExpenseTransactionDto> getExpenseTransactions(UUID accountId) {
-        List<TransactionEntity> expenses = transactionRepository.findExpensesByAccountId(accountId);
-        return transactionMapper.toExpenseTransactionDtoList(expenses);
+    public TransactionPageDto getExpenseTransactions(UUID accountId, String cursor, Integer pageSize) {
+        int size = resolvePageSize(pageSize);
+        return transactionHistoryCache.get(accountId, TransactionHistoryCache.Kind.EXPENSES, cursor, size,
+                () -> loadExpenseTransactions(accountId, cursor, size));
     }
 
     /**
-     * Получает список транзакций, превысивших установленный лимит.
+     * Читает из базы страницу расходных транзакций по курсору; вызывается при промахе кэша истории.
+     */
+    private TransactionPageDto loadExpenseTransactions(UUID accountId, String cursor, int size) {
+        Pageable page = PageRequest.of(0, size + 1);
+        List<ExpenseTransactionDto> expenses;
+        if (Objects.isNull(cursor)) {
+            expenses = transactionRepository.findExpensesByAccountId(accountId, page);
+        } else {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            expenses = transactionRepository.findExpensesByAccountIdAfter(accountId,
+                    position.getTransactionDate(), position.getTransactionId(), page);
+        }
+        return toPage(expenses, size);
+    }
+
+    /**
+     * Получает страницу транзакций, превысивших установленный лимит, от новых к старым.
      *
      * @param accountId UUID счета, для которого выполняется поиск
-     * @return Список объектов {@link ExpenseTransactionDto}, содержащих информацию о транзакциях с превышением лимита
+     * @param cursor    Курсор из предыдущей страницы; null — первая страница
+     * @param pageSize  Размер страницы; null — размер по умолчанию, больше максимального — ограничивается им
+     * @return Страница транзакций с превышением лимита и курсор следующей страницы
+     * @throws BadRequestException Если курсор некорректен
      */
-    public List<ExpenseTransactionDto> getExceededLimitTransactions(UUID accountId) {
+    public TransactionPageDto getExceededLimitTransactions(UUID accountId, String cursor, Integer pageSize) {
         log.info("Запрос на получение транзакций, превысивших лимит, для accountId={}", accountId);
 
-        List<TransactionEntity> exceededTransactions = transactionRepository.findTransactionsExceededLimit(accountId);
+        int size = resolvePageSize(pageSize);
+        return transactionHistoryCache.get(accountId, TransactionHistoryCache.Kind.EXCEEDED_LIMIT, cursor, size,
+                () -> loadExceededLimitTransactions(accountId, cursor, size));
+    }
 
-        if (exceededTransactions.isEmpty()) {
-            log.info("Нет транзакций, превысивших лимит, для accountId={}", accountId);
-            return Collections.emptyList();
+    /**
+     * Читает из базы страницу транзакций с превышением лимита по курсору; вызывается при промахе кэша истории.
+     */
+    private TransactionPageDto loadExceededLimitTransactions(UUID accountId, String cursor, int size) {
+        Pageable page = PageRequest.of(0, size + 1);
+        List<ExpenseTransactionDto> exceededTransactions;
+        if (Objects.isNull(cursor)) {
+            exceededTransactions = transactionRepository.findTransactionsExceededLimit(accountId, page);
+        } else {
+            TransactionCursor position = TransactionCursor.decode(cursor);
+            exceededTransactions = transactionRepository.findTransactionsExceededLimitAfter(accountId,
+                    position.getTransactionDate(), position.getTransactionId(), page);
         }
 
-        log.info("Найдено {} транзакций, превысивших лимит", exceededTransactions.size());
-        return transactionMapper.toExpenseTransactionDtoList(exceededTransactions);
+        log.info("Найдено {} транзакций, превысивших лимит", Math.min(exceededTransactions.size(), size));
+        return toPage(exceededTransactions, size);
     }
 
     /**
-     * Пополняет баланс указанного счета.
+     * Возвращает размер страницы: по умолчанию, если он не задан, и не больше максимального.
+     *
+     * @throws BadRequestException Если размер страницы не больше 0
+     */
+    private int resolvePageSize(Integer pageSize) {
+        if (Objects.isNull(pageSize)) {
+            return defaultPageSize;
+        }
+        if (pageSize <= 0) {
+            throw new BadRequestException("Размер страницы должен быть больше 0");
+        }
+        return Math.min(pageSize, maxPageSize);
+    }
+
+    /**
+     * Формирует страницу из выборки размером до size + 1 строк: лишняя строка означает, что есть следующая страница.
+     */
+    private TransactionPageDto toPage(List<ExpenseTransactionDto> rows, int size) {
+        if (rows.size() <= size) {
+            return new TransactionPageDto(rows, null);
+        }
+        List<ExpenseTransactionDto> pageRows = new ArrayList<>(rows.subList(0, size));
+        ExpenseTransactionDto last = pageRows.get(size - 1);
+        return new TransactionPageDto(pageRows,
+                new TransactionCursor(last.getTransactionDate(), last.getTransactionId()).encode());
+    }
+
+    /**
+     * Пополняет баланс указанного счета без загрузки и блокировки сущности счета.
      *
      * @param userId    UUID пользователя, выполняющего пополнение
      * @param accountId UUID счета, который пополняется
@@ -74,13 +243,56 @@ public class TransactionService {
      * @return Обновленный объект {@link AccountEntity} с новым балансом
      * @throws BadRequestException Если сумма пополнения некорректна или пользователь не владеет счетом
      */
-    @Transactional
     public AccountEntity deposit(UUID userId, UUID accountId, BigDecimal amount) {
         if (amount.compareTo(BigDecimal.ZERO) <= 0) {
             log.error("Пополнение счета невозможно: сумма должна быть больше 0");
             throw new BadRequestException("Сумма пополнения должна быть больше 0");
         }
 
+        if (hotAccountEngine.isHot(accountId)) {
+            AccountEntity account = hotAccountEngine.deposit(userId, accountId, amount);
+            publishDeposit(account, amount);
+            return account;
+        }
+        return depositTemplate.execute(status -> depositToAccount(userId, accountId, amount));
+    }
+
+    /**
+     * Пополняет счет одним выражением UPDATE ... RETURNING: баланс увеличивается в базе, поэтому конкурентные
+     * пополнения не затирают друг друга и не ждут явной блокировки строки.
+     */
+    private AccountEntity depositToAccount(UUID userId, UUID accountId, BigDecimal amount) {
+        if (splitBalanceService.isSplit(accountId)) {
+            return depositToSplitAccount(userId, accountId, amount);
+        }
+
+        AccountEntity account = accountRepository.creditOwnAccount(accountId, userId, amount, LocalDate.now())
+                .orElseThrow(() -> depositRejection(userId, accountId));
+
+        outboxService.append(OutboxEventType.DEPOSIT, accountId,
+                new DepositCompletedEvent(accountId, amount, account.getCurrencyId(), LocalDateTime.now()));
+        publishDeposit(account, amount);
+        idempotencyService.completeCurrent(account);
+        log.info("Счет {} пополнен на сумму {}. Новый баланс: {}", accountId, amount, account.getBalance());
+        return account;
+    }
+
+    /**
+     * Определяет причину, по которой пополнение не изменило ни одной строки.
+     */
+    private BadRequestException depositRejection(UUID userId, UUID accountId) {
+        if (!accountRepository.existsById(accountId)) {
+            return new BadRequestException("Счет не найден");
+        }
+        log.error("Пополнение счета невозможно: Пользователь {} не владеет счетом {}", userId, accountId);
+        return new BadRequestException("Вы не владеете этим счетом");
+    }
+
+    /**
+     * Зачисляет пополнение на часть баланса, не блокируя строку счета.
+     * Возвращает копию счета с полным балансом, чтобы не изменять основной баланс в контексте персистентности.
+     */
+    private AccountEntity depositToSplitAccount(UUID userId, UUID accountId, BigDecimal amount) {
         AccountEntity account = accountRepository.findById(accountId)
                 .orElseThrow(() -> new BadRequestException("Счет не найден"));
 
@@ -89,15 +301,34 @@ public class TransactionService {
             throw new BadRequestException("Вы не владеете этим счетом");
         }
 
-        account.setBalance(account.getBalance().add(amount));
-        accountRepository.save(account);
+        splitBalanceService.credit(accountId, amount);
+        dailySpendService.registerDeposit(accountId, account.getCurrencyId(), amount);
+        outboxService.append(OutboxEventType.DEPOSIT, accountId,
+                new DepositCompletedEvent(accountId, amount, account.getCurrencyId(), LocalDateTime.now()));
 
-        log.info("Счет {} пополнен на сумму {}. Новый баланс: {}", accountId, amount, account.getBalance());
-        return account;
+        AccountEntity result = new AccountEntity();
+        result.setId(account.getId());
+        result.setUserId(account.getUserId());
+        result.setCurrencyId(account.getCurrencyId());
+        result.setBalance(splitBalanceService.getTotalBalance(account));
+        result.setCreatedAt(account.getCreatedAt());
+        result.setVersion(account.getVersion());
+
+        publishDeposit(result, amount);
+        idempotencyService.completeCurrent(result);
+
+        log.info("Счет {} пополнен на сумму {}. Новый баланс: {}", account.getId(), amount, result.getBalance());
+        return result;
     }
 
     /**
      * Выполняет перевод средств между счетами с учетом лимитов и возможных комиссий.
+     * Счет отправителя загружается и блокируется вместе с расходами одним запросом, сумма перевода резервируется
+     * в счетчике расходов за месяц атомарным обновлением, остальные проверки выполняются в памяти,
+     * а получателю сумма зачисляется атомарным обновлением без загрузки его сущности.
+     * Переводы с участием горячих счетов выполняются движком {@link HotAccountEngine}.
+     * В режиме {@link TransferMode#OPTIMISTIC} счета читаются без блокировки, а конфликт версий
+     * приводит к повтору перевода (см. {@link #transferOptimistically}).
      *
      * @param senderUserId      UUID пользователя, отправляющего средства
      * @param senderAccountId   UUID счета отправителя
@@ -105,122 +336,354 @@ public class TransactionService {
      * @param amount            Сумма перевода
      * @throws BadRequestException Если перевод невозможен (недостаточно средств, неверные реквизиты и т. д.)
      */
-    @Transactional(isolation = Isolation.REPEATABLE_READ)
     public void transfer(UUID senderUserId, UUID senderAccountId, UUID receiverAccountId, BigDecimal amount) {
-        validateTransfer(senderUserId, senderAccountId, receiverAccountId, amount);
-
-        AccountEntity senderAccount = accountRepository.findByIdForUpdate(senderAccountId)
-                .orElseThrow(() -> new BadRequestException("Счет отправителя не найден"));
-        AccountEntity receiverAccount = accountRepository.findByIdForUpdate(receiverAccountId)
-                .orElseThrow(() -> new BadRequestException("Счет получателя не найден"));
+        if (hotAccountEngine.isRouted(senderAccountId, receiverAccountId)) {
+            BigDecimal feeAmount = hotAccountEngine.transfer(senderUserId, senderAccountId, receiverAccountId, amount);
+            publishTransfer(senderAccountId, receiverAccountId, amount, feeAmount, null, null);
+            return;
+        }
+        if (transferMode == TransferMode.OPTIMISTIC) {
+            transferOptimistically(senderUserId, senderAccountId, receiverAccountId, amount);
+            return;
+        }
+        transferTemplate.executeWithoutResult(status -> transferBetweenAccounts(
+                senderUserId, senderAccountId, receiverAccountId, amount, TransferMode.PESSIMISTIC));
+    }
 
-        // Проверяем лимит перед переводом
-        CheckTransferResponse checkResponse = limitService.checkTransferLimit(senderAccountId, amount);
-        BigDecimal finalAmount = amount;
-        BigDecimal feeAmount = BigDecimal.ZERO;
-        boolean feeApplied = false;
+    /**
+     * Выполняет перевод без блокировки счетов. Счета обновляются условно по версии; если версия
+     * изменилась, транзакция откатывается и перевод повторяется после случайной паузы, которая растет
+     * с номером попытки. Число попыток ограничено, после последней перевод отклоняется.
+     */
+    private void transferOptimistically(UUID senderUserId, UUID senderAccountId, UUID receiverAccountId, BigDecimal amount) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                optimisticTransferTemplate.executeWithoutResult(status -> transferBetweenAccounts(
+                        senderUserId, senderAccountId, receiverAccountId, amount, TransferMode.OPTIMISTIC));
+                optimisticAttempts.record(attempt);
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                optimisticConflicts.increment();
+                if (attempt >= optimisticMaxAttempts) {
+                    optimisticAttempts.record(attempt);
+                    optimisticExhausted.increment();
+                    log.warn("Перевод со счета {} на счет {} не выполнен: конфликт версий после {} попыток",
+                            senderAccountId, receiverAccountId, attempt);
+                    throw new BadRequestException("Счет изменяется другими операциями, повторите перевод позже");
+                }
+                log.debug("Конфликт версий при переводе со счета {} на счет {}, попытка {}", senderAccountId, receiverAccountId, attempt);
+                pauseBeforeRetry(attempt);
+            }
+        }
+    }
 
-        if (checkResponse.isRequiresFee()) {
-            feeAmount = checkResponse.getFeeAmount();
-            finalAmount = finalAmount.add(feeAmount);
-            feeApplied = true;
-            log.warn("Лимит превышен! К переводу добавлена комиссия {}", feeAmount);
+    /**
+     * Ждет перед повтором случайное время от backoff-min-ms до границы, которая удваивается с каждой попыткой
+     * и не превышает backoff-max-ms. Случайность разводит во времени повторы конкурирующих переводов.
+     */
+    private void pauseBeforeRetry(int attempt) {
+        long ceiling = Math.min(optimisticBackoffMaxMillis, optimisticBackoffMinMillis << Math.min(attempt, 20));
+        long delay = ThreadLocalRandom.current().nextLong(optimisticBackoffMinMillis, Math.max(ceiling, optimisticBackoffMinMillis) + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Ожидание повтора перевода прервано", e);
         }
+    }
 
-        // Проверяем баланс с учетом комиссии
-        if (senderAccount.getBalance().compareTo(finalAmount) < 0) {
-            throw new BadRequestException("Недостаточно средств на счету!");
+    /**
+     * Выполняет перевод в текущей транзакции. Строки отправителя и получателя захватываются в порядке
+     * {@link #ACCOUNT_ID_ORDER}: если получатель идет первым, ему зачисляется сумма до блокировки отправителя,
+     * иначе — после списания у отправителя. Так встречные переводы не блокируют друг друга взаимно.
+     * При любой ошибке транзакция откатывается вместе с уже выполненным зачислением.
+     * Результат идемпотентного запроса сохраняется в этой же транзакции.
+     */
+    private void transferBetweenAccounts(UUID senderUserId, UUID senderAccountId, UUID receiverAccountId, BigDecimal amount,
+                                         TransferMode mode) {
+        validateAmountAndAccounts(senderAccountId, receiverAccountId, amount);
+        LocalDate period = accountSpendService.getCurrentPeriod();
+        boolean receiverFirst = ACCOUNT_ID_ORDER.compare(receiverAccountId, senderAccountId) < 0;
+
+        CreditedAccount receiver = receiverFirst ? creditReceiver(receiverAccountId, amount) : null;
+
+        LockedAccount sender = lockAccounts(List.of(senderAccountId), Set.of(senderAccountId), period, mode)
+                .get(senderAccountId);
+        if (Objects.isNull(sender)) {
+            throw new BadRequestException("Счет отправителя не найден");
+        }
+        if (!sender.getAccount().getUserId().equals(senderUserId)) {
+            throw new BadRequestException("Вы не владеете этим счетом");
         }
 
-        // Обновляем балансы
-        updateBalances(senderAccount, receiverAccount, amount, feeAmount);
+        // Резервируем сумму в счетчике расходов до проверки лимита: проверка идет по расходам, возвращенным
+        // атомарным увеличением счетчика, а не по прочитанным ранее, и при отказе резерв откатывается с транзакцией
+        BigDecimal spentBefore = accountSpendService.reserveSpending(senderAccountId, period, amount);
+        sender.getCounters().applyMonthReservation(spentBefore,
+                Objects.isNull(limitService.getPolicy(sender.getAccount()).getWindowDays()));
+
+        BigDecimal feeAmount;
+        if (receiverFirst) {
+            feeAmount = debitSender(sender, receiver.getCurrencyId(), amount);
+        } else {
+            feeAmount = debitSender(sender, sender.getAccount().getCurrencyId(), amount);
+            // Обновление отправителя должно попасть в базу до зачисления получателю
+            accountRepository.flush();
+            receiver = creditReceiver(receiverAccountId, amount);
+            checkCurrency(sender.getAccount(), receiver.getCurrencyId());
+        }
 
-        // Сохраняем транзакции (перевод + комиссия)
-        saveTransactions(senderAccountId, receiverAccountId, amount, feeAmount, senderAccount.getCurrencyId(), feeApplied);
+        // Сохраняем транзакции; счетчик расходов отправителя уже увеличен резервом
+        transactionRecordService.recordTransfer(senderAccountId, receiverAccountId, amount, feeAmount,
+                sender.getAccount().getCurrencyId());
 
+        BigDecimal senderBalance = splitBalanceService.getTotalBalance(sender.getAccount());
+        publishTransfer(senderAccountId, receiverAccountId, amount, feeAmount, senderBalance, receiver.getBalance());
+        idempotencyService.completeCurrent(null);
         log.info("Перевод {} со счета {} на счет {} выполнен. Новый баланс отправителя: {}, получателя: {}",
-                amount, senderAccountId, receiverAccountId, senderAccount.getBalance(), receiverAccount.getBalance());
+                amount, senderAccountId, receiverAccountId, senderBalance, receiver.getBalance());
     }
 
     /**
-     * Валидирует корректность перевода средств.
+     * Зачисляет сумму перевода получателю, не загружая его сущность.
      *
-     * @param senderUserId      UUID пользователя, выполняющего перевод
-     * @param senderAccountId   UUID счета отправителя
      * @param receiverAccountId UUID счета получателя
      * @param amount            Сумма перевода
-     * @throws BadRequestException Если перевод невозможен (ошибки в реквизитах, недостаточно средств и т. д.)
+     * @return Новый баланс и валюта счета получателя
+     * @throws BadRequestException Если счет получателя не найден
      */
-    private void validateTransfer(UUID senderUserId, UUID senderAccountId, UUID receiverAccountId, BigDecimal amount) {
-        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
-            throw new BadRequestException("Сумма перевода должна быть больше 0");
+    private CreditedAccount creditReceiver(UUID receiverAccountId, BigDecimal amount) {
+        if (splitBalanceService.isSplit(receiverAccountId)) {
+            AccountEntity receiverAccount = accountRepository.findById(receiverAccountId)
+                    .orElseThrow(() -> new BadRequestException("Счет получателя не найден"));
+            splitBalanceService.credit(receiverAccountId, amount);
+            return new CreditedAccount(splitBalanceService.getTotalBalance(receiverAccount), receiverAccount.getCurrencyId());
         }
+        return accountRepository.credit(receiverAccountId, amount)
+                .orElseThrow(() -> new BadRequestException("Счет получателя не найден"));
+    }
 
-        if (!accountRepository.existsById(senderAccountId)) {
-            throw new BadRequestException("Счет отправителя не найден");
+    /**
+     * Выполняет пакет переводов в одной транзакции базы данных.
+     * Все счета пакета блокируются одним запросом в порядке возрастания id, поэтому каждый счет
+     * блокируется один раз независимо от числа переводов по нему, а встречные пакеты не попадают
+     * во взаимную блокировку. Переводы применяются по порядку с теми же правилами лимитов и комиссий,
+     * что и одиночный перевод; ошибка одного перевода не отменяет остальные.
+     * Переводы с участием горячих счетов в пакете не выполняются: такие счета принадлежат движку горячих счетов.
+     *
+     * @param transfers Список переводов
+     * @return Результат по каждому переводу в порядке следования в запросе
+     * @throws BadRequestException Если пакет пуст или превышает допустимый размер
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public List<TransferBatchResultDto> transferBatch(List<TransferRequestDto> transfers) {
+        if (transfers.isEmpty() || transfers.size() > maxBatchSize) {
+            throw new BadRequestException("Пакет должен содержать от 1 до " + maxBatchSize + " переводов");
         }
 
-        if (!accountRepository.existsById(receiverAccountId)) {
-            throw new BadRequestException("Счет получателя не найден");
+        LocalDate period = accountSpendService.getCurrentPeriod();
+        Set<UUID> accountIds = new HashSet<>();
+        Set<UUID> senderIds = new HashSet<>();
+        transfers.stream()
+                .filter(transfer -> !hotAccountEngine.isRouted(transfer.getSenderAccountId(), transfer.getReceiverAccountId()))
+                .forEach(transfer -> {
+                    senderIds.add(transfer.getSenderAccountId());
+                    accountIds.add(transfer.getSenderAccountId());
+                    accountIds.add(transfer.getReceiverAccountId());
+                });
+        Map<UUID, LockedAccount> lockedAccounts = lockAccounts(accountIds, senderIds, period, TransferMode.PESSIMISTIC);
+
+        Map<UUID, BigDecimal> spentByAccount = new HashMap<>();
+        List<TransferBatchResultDto> results = new ArrayList<>(transfers.size());
+
+        for (int index = 0; index < transfers.size(); index++) {
+            TransferRequestDto transfer = transfers.get(index);
+            try {
+                if (hotAccountEngine.isRouted(transfer.getSenderAccountId(), transfer.getReceiverAccountId())) {
+                    throw new BadRequestException("Переводы с горячих и на горячие счета не выполняются в пакете");
+                }
+                BigDecimal feeAmount = applyTransfer(transfer.getSenderUserId(), transfer.getSenderAccountId(),
+                        transfer.getReceiverAccountId(), transfer.getAmount(), lockedAccounts);
+                spentByAccount.merge(transfer.getSenderAccountId(), transfer.getAmount(), BigDecimal::add);
+                results.add(new TransferBatchResultDto(index, true, feeAmount, null));
+            } catch (BadRequestException e) {
+                log.warn("Перевод {} из пакета отклонен: {}", index, e.getMessage());
+                results.add(new TransferBatchResultDto(index, false, BigDecimal.ZERO, e.getMessage()));
+            }
         }
 
-        AccountEntity senderAccount = accountRepository.findById(senderAccountId)
-                .orElseThrow(() -> new BadRequestException("Счет отправителя не найден"));
-        AccountEntity receiverAccount = accountRepository.findById(receiverAccountId)
-                .orElseThrow(() -> new BadRequestException("Счет получателя не найден"));
+        spentByAccount.forEach((accountId, spent) -> accountSpendService.registerSpending(accountId, period, spent));
 
+        log.info("Пакет из {} переводов обработан, успешно: {}", transfers.size(),
+                results.stream().filter(TransferBatchResultDto::isSuccess).count());
+        return results;
+    }
+
+    /**
+     * Загружает и блокирует счета вместе с лимитами одним запросом.
+     * Счета с разделенным балансом, которые только получают средства, загружаются без блокировки:
+     * зачисление на них не изменяет строку счета. В оптимистическом режиме счета не блокируются вовсе.
+     *
+     * @param accountIds UUID счетов перевода
+     * @param senderIds  UUID счетов, с которых списываются средства
+     * @param period     Месяц, за который берется счетчик расходов
+     * @param mode       Режим согласования конкурентных переводов
+     * @return Счета по их UUID
+     */
+    private Map<UUID, LockedAccount> lockAccounts(Collection<UUID> accountIds, Set<UUID> senderIds, LocalDate period,
+                                                  TransferMode mode) {
+        Map<Boolean, List<UUID>> byLockRequired = accountIds.stream().distinct()
+                .collect(Collectors.partitioningBy(id -> senderIds.contains(id) || !splitBalanceService.isSplit(id)));
+        List<UUID> lockIds = byLockRequired.get(true);
+        List<UUID> readIds = byLockRequired.get(false);
+
+        Map<UUID, LockedAccount> accounts = new HashMap<>();
+        if (!lockIds.isEmpty()) {
+            List<LockedAccount> loaded = mode == TransferMode.OPTIMISTIC
+                    ? accountRepository.findForTransfer(lockIds, period, LocalDate.now())
+                    : accountRepository.lockForTransfer(lockIds, period, LocalDate.now());
+            loaded.forEach(locked -> accounts.put(locked.getAccount().getId(), locked));
+        }
+        if (!readIds.isEmpty()) {
+            accountRepository.findAllById(readIds)
+                    .forEach(account -> accounts.put(account.getId(), new LockedAccount(account, SpendCounters.empty())));
+        }
+        return accounts;
+    }
+
+    /**
+     * Проверяет и применяет один перевод пакета к уже заблокированным счетам.
+     * Все проверки выполняются до изменения балансов, поэтому отклоненный перевод не оставляет следов.
+     *
+     * @param senderUserId      UUID пользователя, отправляющего средства
+     * @param senderAccountId   UUID счета отправителя
+     * @param receiverAccountId UUID счета получателя
+     * @param amount            Сумма перевода
+     * @param lockedAccounts    Заблокированные счета по их UUID
+     * @return Комиссия за превышение лимита или 0
+     * @throws BadRequestException Если перевод невозможен (недостаточно средств, неверные реквизиты и т. д.)
+     */
+    private BigDecimal applyTransfer(UUID senderUserId, UUID senderAccountId, UUID receiverAccountId, BigDecimal amount,
+                                     Map<UUID, LockedAccount> lockedAccounts) {
+        validateAmountAndAccounts(senderAccountId, receiverAccountId, amount);
+
+        LockedAccount sender = lockedAccounts.get(senderAccountId);
+        if (Objects.isNull(sender)) {
+            throw new BadRequestException("Счет отправителя не найден");
+        }
+        LockedAccount receiver = lockedAccounts.get(receiverAccountId);
+        if (Objects.isNull(receiver)) {
+            throw new BadRequestException("Счет получателя не найден");
+        }
+
+        AccountEntity senderAccount = sender.getAccount();
+        AccountEntity receiverAccount = receiver.getAccount();
         if (!senderAccount.getUserId().equals(senderUserId)) {
             throw new BadRequestException("Вы не владеете этим счетом");
         }
 
-        if (!senderAccount.getCurrencyId().equals(receiverAccount.getCurrencyId())) {
-            throw new BadRequestException("Перевод возможен только между счетами с одинаковой валютой");
-        }
+        BigDecimal feeAmount = debitSender(sender, receiverAccount.getCurrencyId(), amount);
 
-        if (senderAccount.getBalance().compareTo(amount) < 0) {
-            throw new BadRequestException("Недостаточно средств на счету");
+        // Получатель получает только перевод
+        if (splitBalanceService.isSplit(receiverAccountId)) {
+            splitBalanceService.credit(receiverAccountId, amount);
+        } else {
+            receiverAccount.setBalance(receiverAccount.getBalance().add(amount));
         }
+
+        // Записываем проводки перевода и комиссии
+        transactionRecordService.recordTransfer(senderAccountId, receiverAccountId, amount, feeAmount,
+                senderAccount.getCurrencyId());
+        publishTransfer(senderAccountId, receiverAccountId, amount, feeAmount,
+                splitBalanceService.getTotalBalance(senderAccount), splitBalanceService.getTotalBalance(receiverAccount));
+        return feeAmount;
     }
 
     /**
-     * Обновляет балансы счетов отправителя и получателя.
+     * Публикует изменение баланса счета пополнением. Подписчики ленты получат его после фиксации транзакции.
+     */
+    private void publishDeposit(AccountEntity account, BigDecimal amount) {
+        eventPublisher.publishEvent(new BalanceChangedEvent(account.getId(), TransactionType.DEPOSIT, amount,
+                account.getBalance(), null, LocalDateTime.now()));
+    }
+
+    /**
+     * Публикует изменения балансов обеих сторон перевода. Списание у отправителя включает комиссию.
      *
-     * @param senderAccount  Счет отправителя
-     * @param receiverAccount Счет получателя
-     * @param amount         Сумма перевода
-     * @param feeAmount      Комиссия за превышение лимита (если применима)
+     * @param senderBalance   Баланс отправителя после перевода или null, если он неизвестен
+     * @param receiverBalance Баланс получателя после перевода или null, если он неизвестен
      */
-    private void updateBalances(AccountEntity senderAccount, AccountEntity receiverAccount, BigDecimal amount, BigDecimal feeAmount) {
-        senderAccount.setBalance(senderAccount.getBalance().subtract(amount.add(feeAmount))); // Учитываем комиссию
-        receiverAccount.setBalance(receiverAccount.getBalance().add(amount)); // Получатель получает только перевод
+    private void publishTransfer(UUID senderAccountId, UUID receiverAccountId, BigDecimal amount, BigDecimal feeAmount,
+                                 BigDecimal senderBalance, BigDecimal receiverBalance) {
+        LocalDateTime occurredAt = LocalDateTime.now();
+        eventPublisher.publishEvent(new BalanceChangedEvent(senderAccountId, TransactionType.TRANSFER_OUT,
+                amount.add(feeAmount).negate(), senderBalance, receiverAccountId, occurredAt));
+        eventPublisher.publishEvent(new BalanceChangedEvent(receiverAccountId, TransactionType.TRANSFER_IN,
+                amount, receiverBalance, senderAccountId, occurredAt));
+    }
 
-        accountRepository.save(senderAccount);
-        accountRepository.save(receiverAccount);
+    /**
+     * Проверяет сумму перевода и то, что счета отправителя и получателя различаются.
+     */
+    private void validateAmountAndAccounts(UUID senderAccountId, UUID receiverAccountId, BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BadRequestException("Сумма перевода должна быть больше 0");
+        }
+
+        if (senderAccountId.equals(receiverAccountId)) {
+            throw new BadRequestException("Счета отправителя и получателя совпадают");
+        }
     }
 
     /**
-     * Сохраняет информацию о транзакции в базе данных.
+     * Проверяет валюту, лимит и баланс отправителя и списывает с его счета сумму перевода с комиссией.
+     * Счет отправителя находится в контексте персистентности, поэтому изменение попадет в базу при сбросе контекста.
      *
-     * @param senderAccountId   UUID счета отправителя
-     * @param receiverAccountId UUID счета получателя
-     * @param amount            Сумма перевода
-     * @param feeAmount         Комиссия (если применима)
-     * @param currencyId        ID валюты транзакции
-     * @param feeApplied        Применена ли комиссия
+     * @param sender             Загруженный счет отправителя с расходами за периоды лимитов
+     * @param receiverCurrencyId ID валюты счета получателя
+     * @param amount             Сумма перевода
+     * @return Комиссия за превышение лимита или 0
+     * @throws BadRequestException Если валюты счетов различаются, перевод запрещен правилом лимита или средств недостаточно
      */
-    private void saveTransactions(UUID senderAccountId, UUID receiverAccountId, BigDecimal amount, BigDecimal feeAmount,
-                                  Integer currencyId, boolean feeApplied) {
-        if (Objects.isNull(currencyId)) {
-            throw new IllegalStateException("Currency ID не может быть null!");
+    private BigDecimal debitSender(LockedAccount sender, Integer receiverCurrencyId, BigDecimal amount) {
+        AccountEntity senderAccount = sender.getAccount();
+        checkCurrency(senderAccount, receiverCurrencyId);
+
+        // Проверяем лимит и правила лимитов перед переводом по уже загруженным расходам
+        CheckTransferResponse checkResponse = limitService.evaluateTransferLimit(
+                limitService.getPolicy(senderAccount), amount, sender.getCounters());
+        BigDecimal feeAmount = BigDecimal.ZERO;
+
+        if (checkResponse.isRequiresFee()) {
+            feeAmount = checkResponse.getFeeAmount();
+            log.warn("Лимит превышен! К переводу добавлена комиссия {}", feeAmount);
         }
+        BigDecimal finalAmount = amount.add(feeAmount);
 
-        TransactionEntity senderTransaction = transactionMapper.toTransactionEntity(
-                senderAccountId, amount.negate(), currencyId, "Перевод на счет " + receiverAccountId);
+        // Проверяем баланс с учетом комиссии, при нехватке переносим части разделенного баланса на основной
+        if (senderAccount.getBalance().compareTo(finalAmount) < 0 && splitBalanceService.isSplit(senderAccount.getId())) {
+            splitBalanceService.collect(senderAccount);
+        }
+        if (senderAccount.getBalance().compareTo(finalAmount) < 0) {
+            throw new BadRequestException("Недостаточно средств на счету!");
+        }
 
-        TransactionEntity receiverTransaction = transactionMapper.toTransactionEntity(
-                receiverAccountId, amount, currencyId, "Перевод от счета " + senderAccountId);
+        // Списываем сумму с комиссией и увеличиваем расходы отправителя за периоды лимитов
+        senderAccount.setBalance(senderAccount.getBalance().subtract(finalAmount));
+        sender.getCounters().add(amount);
+        return feeAmount;
+    }
 
-        transactionRepository.save(senderTransaction);
-        transactionRepository.save(receiverTransaction);
+    /**
+     * Проверяет, что перевод выполняется между счетами одной валюты.
+     *
+     * @param senderAccount      Счет отправителя
+     * @param receiverCurrencyId ID валюты счета получателя
+     * @throws BadRequestException Если валюты счетов различаются
+     */
+    private void checkCurrency(AccountEntity senderAccount, Integer receiverCurrencyId) {
+        if (!senderAccount.getCurrencyId().equals(receiverCurrencyId)) {
+            throw new BadRequestException("Перевод возможен только между счетами с одинаковой валютой");
+        }
     }
 }
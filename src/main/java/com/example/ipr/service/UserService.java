@@ -1,5 +1,6 @@
 package com.example.ipr.service;
 
+import com.example.ipr.config.ReplicaRoutingDataSource;
 import com.example.ipr.domain.JwtRequestDto;
 import com.example.ipr.domain.JwtResponseDto;
 import com.example.ipr.domain.RegistrationDto;
@@ -82,6 +83,11 @@ public class UserService {
      * @throws BadRequestException Если вход не удался из-за неверных данных.
      */
     public JwtResponseDto login(JwtRequestDto jwtRequestDto) {
+        // Вход возможен сразу после регистрации, поэтому пользователь и его роли читаются с основной базы
+        return ReplicaRoutingDataSource.onPrimary(() -> authenticate(jwtRequestDto));
+    }
+
+    private JwtResponseDto authenticate(JwtRequestDto jwtRequestDto) {
         UserEntity user = userRepository.findByEmail(jwtRequestDto.getEmail())
                 .orElseThrow(() -> new BadRequestException("Неверные учетные данные"));
 
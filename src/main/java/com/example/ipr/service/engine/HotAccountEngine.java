@@ -0,0 +1,484 @@
+package com.example.ipr.service.engine;
+
+import com.example.ipr.domain.CheckTransferResponse;
+import com.example.ipr.domain.LimitPolicy;
+import com.example.ipr.domain.LockedAccount;
+import com.example.ipr.domain.SpendCounters;
+import com.example.ipr.exceptions.BadRequestException;
+import com.example.ipr.exceptions.TransactionOutcome;
+import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.example.ipr.persist.repository.DailyAccountSpendRepository;
+import com.example.ipr.service.AccountSpendService;
+import com.example.ipr.service.IdempotencyService;
+import com.example.ipr.service.LimitService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Движок горячих счетов с единственным писателем на счет.
+ * Состояние горячих счетов (баланс и расходы по дням в {@link SpendRing}) хранится в памяти и изменяется только
+ * потоком-владельцем счета, поэтому переводы по горячему счету не конкурируют за блокировку строки в базе.
+ * Каждая операция сначала применяется в памяти, затем записывается в журнал и подтверждается клиенту
+ * только после фиксации журнала в базе данных. Результат идемпотентного запроса сохраняется в той же транзакции
+ * журнала. Если запись в журнал не удалась, изменение в памяти откатывается.
+ * <p>
+ * Движок рассчитан на единственный экземпляр приложения: горячие счета не должны изменяться в обход него.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class HotAccountEngine {
+
+    /**
+     * Наибольшее число дней в календарном месяце: кольцо расходов должно вмещать месяц целиком.
+     */
+    private static final int MONTH_DAYS = 31;
+
+    private final AccountRepository accountRepository;
+    private final DailyAccountSpendRepository dailyAccountSpendRepository;
+    private final LimitService limitService;
+    private final AccountSpendService accountSpendService;
+    private final HotAccountJournal journal;
+    private final IdempotencyService idempotencyService;
+    private final PlatformTransactionManager transactionManager;
+
+    private final Map<UUID, HotAccountState> accounts = new ConcurrentHashMap<>();
+
+    @Value("${ipr.hot-accounts.enabled}")
+    private boolean enabled;
+
+    @Value("${ipr.hot-accounts.ids}")
+    private Set<UUID> hotAccountIds;
+
+    @Value("${ipr.hot-accounts.workers}")
+    private int workerCount;
+
+    @Value("${ipr.hot-accounts.await-timeout-ms}")
+    private long awaitTimeoutMillis;
+
+    @Value("${ipr.limits.max-window-days}")
+    private int maxWindowDays;
+
+    private ExecutorService[] workers;
+
+    /**
+     * Загружает состояние горячих счетов из базы и запускает потоки-владельцы и журнал.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled || hotAccountIds.isEmpty()) {
+            log.info("Движок горячих счетов выключен");
+            return;
+        }
+
+        loadStates(hotAccountIds).forEach(state -> {
+            // Правила лимитов загружаются в кэш заранее, чтобы первый перевод не читал их в потоке-владельце
+            limitService.getPolicy(state.getAccountId());
+            accounts.put(state.getAccountId(), state);
+        });
+        if (accounts.size() != hotAccountIds.size()) {
+            log.warn("Не найдены горячие счета: {}", hotAccountIds.stream().filter(id -> !accounts.containsKey(id)).toList());
+        }
+
+        workers = new ExecutorService[workerCount];
+        for (int i = 0; i < workerCount; i++) {
+            int index = i;
+            workers[i] = Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "hot-account-worker-" + index));
+        }
+        journal.start();
+        log.info("Движок горячих счетов запущен: счетов {}, потоков {}", accounts.size(), workerCount);
+    }
+
+    /**
+     * Читает из базы балансы и расходы по дням указанных счетов.
+     */
+    private List<HotAccountState> loadStates(Set<UUID> accountIds) {
+        LocalDate period = accountSpendService.getCurrentPeriod();
+        LocalDate today = LocalDate.now();
+        int ringDays = Math.max(maxWindowDays, MONTH_DAYS);
+        Map<UUID, SpendRing> spending = new HashMap<>();
+        List<LockedAccount> loaded = new TransactionTemplate(transactionManager).execute(status -> {
+            List<LockedAccount> locked = accountRepository.lockForTransfer(accountIds, period, today);
+            dailyAccountSpendRepository.findByAccountIdInAndSpendDateGreaterThanEqual(accountIds, today.minusDays(ringDays - 1))
+                    .forEach(day -> spending.computeIfAbsent(day.getAccountId(), id -> new SpendRing(ringDays))
+                            .add(day.getSpendDate(), day.getSpentAmount()));
+            return locked;
+        });
+        return loaded.stream().map(locked -> {
+            AccountEntity account = locked.getAccount();
+            return new HotAccountState(account.getId(), account.getUserId(), account.getCurrencyId(), account.getCreatedAt(),
+                    spending.getOrDefault(account.getId(), new SpendRing(ringDays)), account.getBalance());
+        }).toList();
+    }
+
+    /**
+     * Останавливает потоки-владельцы после завершения уже принятых операций.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (Objects.isNull(workers)) {
+            return;
+        }
+        for (ExecutorService worker : workers) {
+            worker.shutdown();
+        }
+        for (ExecutorService worker : workers) {
+            worker.awaitTermination(30, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Проверяет, обслуживается ли счет движком.
+     *
+     * @param accountId UUID счета
+     * @return true, если счет горячий
+     */
+    public boolean isHot(UUID accountId) {
+        return accounts.containsKey(accountId);
+    }
+
+    /**
+     * Проверяет, должен ли перевод между счетами выполняться движком.
+     *
+     * @param senderAccountId   UUID счета отправителя
+     * @param receiverAccountId UUID счета получателя
+     * @return true, если хотя бы один из счетов горячий
+     */
+    public boolean isRouted(UUID senderAccountId, UUID receiverAccountId) {
+        return isHot(senderAccountId) || isHot(receiverAccountId);
+    }
+
+    /**
+     * Выполняет перевод, в котором участвует хотя бы один горячий счет.
+     * Горячий отправитель проверяется и списывается в памяти, холодная сторона проверяется и изменяется
+     * при записи журнала. Метод возвращает управление после фиксации перевода в базе данных.
+     * Если группа журнала точно откатилась, списание в памяти возвращается отправителю; если исход неизвестен,
+     * состояние горячих счетов перевода перечитывается из базы.
+     *
+     * @param senderUserId      UUID пользователя, отправляющего средства
+     * @param senderAccountId   UUID счета отправителя
+     * @param receiverAccountId UUID счета получателя
+     * @param amount            Сумма перевода
+     * @return Комиссия за превышение лимита или 0
+     * @throws BadRequestException Если перевод невозможен (недостаточно средств, неверные реквизиты и т. д.)
+     */
+    public BigDecimal transfer(UUID senderUserId, UUID senderAccountId, UUID receiverAccountId, BigDecimal amount) {
+        if (amount.compareTo(BigDecimal.ZERO) <= 0) {
+            throw new BadRequestException("Сумма перевода должна быть больше 0");
+        }
+        if (senderAccountId.equals(receiverAccountId)) {
+            throw new BadRequestException("Счета отправителя и получателя совпадают");
+        }
+
+        HotAccountState sender = accounts.get(senderAccountId);
+        HotAccountState receiver = accounts.get(receiverAccountId);
+
+        LocalDate today = LocalDate.now();
+        JournalEntry entry;
+        if (Objects.nonNull(sender)) {
+            CompletableFuture<JournalEntry> debited = onOwner(senderAccountId,
+                    () -> debit(sender, receiver, senderUserId, receiverAccountId, amount, today));
+            entry = awaitOwner(senderAccountId, debited, late -> {
+                refund(sender, late, today);
+                sender.settle();
+            });
+        } else {
+            entry = JournalEntry.transfer(senderUserId, senderAccountId, receiverAccountId, amount, null,
+                    receiver.getCurrencyId(), false, true);
+        }
+        if (Objects.nonNull(receiver)) {
+            try {
+                CompletableFuture<HotAccountState> begun = onOwner(receiverAccountId, () -> {
+                    prepare(receiver);
+                    receiver.begin();
+                    return receiver;
+                });
+                awaitOwner(receiverAccountId, begun, HotAccountState::settle);
+            } catch (RuntimeException e) {
+                if (Objects.nonNull(sender)) {
+                    onOwner(senderAccountId, () -> {
+                        refund(sender, entry, today);
+                        sender.settle();
+                        return null;
+                    });
+                }
+                throw e;
+            }
+        }
+        entry.setIdempotentRequest(idempotencyService.currentRequest());
+
+        try {
+            await(journal.append(entry));
+        } catch (RuntimeException e) {
+            if (TransactionOutcome.isUnknown(e)) {
+                log.error("Исход перевода со счета {} на счет {} неизвестен, состояние горячих счетов будет перечитано из базы",
+                        senderAccountId, receiverAccountId, e);
+                markStale(senderAccountId, sender, entry);
+                markStale(receiverAccountId, receiver, entry);
+                throw e;
+            }
+            if (Objects.nonNull(sender)) {
+                onOwner(senderAccountId, () -> {
+                    refund(sender, entry, today);
+                    sender.settle();
+                    return null;
+                });
+            }
+            if (Objects.nonNull(receiver)) {
+                onOwner(receiverAccountId, () -> {
+                    receiver.settle();
+                    return null;
+                });
+            }
+            throw e;
+        }
+
+        if (Objects.nonNull(sender)) {
+            onOwner(senderAccountId, () -> {
+                sender.settle();
+                return null;
+            });
+        }
+        if (Objects.nonNull(receiver)) {
+            onOwner(receiverAccountId, () -> {
+                receiver.setBalance(receiver.getBalance().add(amount));
+                receiver.settle();
+                return null;
+            });
+        }
+
+        log.info("Перевод {} со счета {} на счет {} выполнен движком горячих счетов", amount, senderAccountId, receiverAccountId);
+        return entry.getFeeAmount();
+    }
+
+    /**
+     * Пополняет горячий счет. Баланс увеличивается в памяти до записи журнала, чтобы ответ был известен
+     * в транзакции журнала; если группа журнала точно откатилась, пополнение в памяти откатывается,
+     * а если исход неизвестен — состояние счета перечитывается из базы.
+     * Метод возвращает управление после фиксации пополнения в базе данных.
+     *
+     * @param userId    UUID пользователя, выполняющего пополнение
+     * @param accountId UUID горячего счета
+     * @param amount    Сумма пополнения
+     * @return Счет с новым балансом
+     * @throws BadRequestException Если пользователь не владеет счетом
+     */
+    public AccountEntity deposit(UUID userId, UUID accountId, BigDecimal amount) {
+        HotAccountState state = accounts.get(accountId);
+        if (!state.getUserId().equals(userId)) {
+            log.error("Пополнение счета невозможно: Пользователь {} не владеет счетом {}", userId, accountId);
+            throw new BadRequestException("Вы не владеете этим счетом");
+        }
+
+        CompletableFuture<BigDecimal> credited = onOwner(accountId, () -> {
+            prepare(state);
+            state.begin();
+            state.setBalance(state.getBalance().add(amount));
+            return state.getBalance();
+        });
+        BigDecimal balance = awaitOwner(accountId, credited, late -> {
+            state.setBalance(state.getBalance().subtract(amount));
+            state.settle();
+        });
+
+        AccountEntity account = new AccountEntity();
+        account.setId(accountId);
+        account.setUserId(state.getUserId());
+        account.setCurrencyId(state.getCurrencyId());
+        account.setCreatedAt(state.getCreatedAt());
+        account.setBalance(balance);
+
+        JournalEntry entry = JournalEntry.deposit(accountId, amount, state.getCurrencyId());
+        entry.setIdempotentRequest(idempotencyService.currentRequest());
+        entry.setResponse(account);
+        try {
+            await(journal.append(entry));
+        } catch (RuntimeException e) {
+            if (TransactionOutcome.isUnknown(e)) {
+                log.error("Исход пополнения счета {} неизвестен, состояние счета будет перечитано из базы", accountId, e);
+                markStale(accountId, state, entry);
+                throw e;
+            }
+            onOwner(accountId, () -> {
+                state.setBalance(state.getBalance().subtract(amount));
+                state.settle();
+                return null;
+            });
+            throw e;
+        }
+        onOwner(accountId, () -> {
+            state.settle();
+            return null;
+        });
+
+        log.info("Счет {} пополнен на сумму {}. Новый баланс: {}", accountId, amount, balance);
+        return account;
+    }
+
+    /**
+     * Проверяет перевод с горячего счета и списывает сумму с комиссией в памяти. Выполняется потоком-владельцем отправителя.
+     */
+    private JournalEntry debit(HotAccountState sender, HotAccountState receiver, UUID senderUserId,
+                               UUID receiverAccountId, BigDecimal amount, LocalDate today) {
+        if (!sender.getUserId().equals(senderUserId)) {
+            throw new BadRequestException("Вы не владеете этим счетом");
+        }
+        prepare(sender);
+        if (Objects.nonNull(receiver) && !sender.getCurrencyId().equals(receiver.getCurrencyId())) {
+            throw new BadRequestException("Перевод возможен только между счетами с одинаковой валютой");
+        }
+
+        LimitPolicy policy = limitService.getPolicy(sender.getAccountId());
+        SpendCounters counters = policy.isEmpty() ? SpendCounters.empty()
+                : countersOf(sender.getSpending(), policy.getWindowDays(), today);
+        CheckTransferResponse checkResponse = limitService.evaluateTransferLimit(policy, amount, counters);
+        BigDecimal feeAmount = checkResponse.isRequiresFee() ? checkResponse.getFeeAmount() : BigDecimal.ZERO;
+        BigDecimal debited = amount.add(feeAmount);
+        if (sender.getBalance().compareTo(debited) < 0) {
+            throw new BadRequestException("Недостаточно средств на счету!");
+        }
+
+        sender.setBalance(sender.getBalance().subtract(debited));
+        sender.getSpending().add(today, amount);
+        sender.begin();
+        return JournalEntry.transfer(senderUserId, sender.getAccountId(), receiverAccountId, amount, feeAmount,
+                sender.getCurrencyId(), true, Objects.nonNull(receiver));
+    }
+
+    /**
+     * Отмечает горячий счет устаревшим после операции с неизвестным исходом. Счет перестает учитывать
+     * операцию как незавершенную, только когда журнал завершит ее запись (при таймауте ожидания — позже).
+     */
+    private void markStale(UUID accountId, HotAccountState state, JournalEntry entry) {
+        if (Objects.isNull(state)) {
+            return;
+        }
+        onOwner(accountId, () -> {
+            state.setStale(true);
+            return null;
+        });
+        entry.getCommitted().whenComplete((result, error) -> onOwner(accountId, () -> {
+            state.settle();
+            return null;
+        }));
+    }
+
+    /**
+     * Готовит счет к новой операции: устаревший счет перечитывается из базы, когда у него не осталось
+     * незавершенных записей журнала, а до этого операции по нему отклоняются. Выполняется потоком-владельцем счета.
+     *
+     * @throws BadRequestException Если счет устарел и журнал еще записывает его операции
+     */
+    private void prepare(HotAccountState state) {
+        if (!state.isStale()) {
+            return;
+        }
+        if (state.getPending() > 0) {
+            throw new BadRequestException("Счет временно недоступен, повторите операцию позже");
+        }
+        reload(state);
+    }
+
+    /**
+     * Перечитывает из базы баланс и расходы устаревшего счета. Выполняется потоком-владельцем счета,
+     * когда у счета нет незавершенных записей журнала, поэтому база содержит все его операции.
+     */
+    private void reload(HotAccountState state) {
+        HotAccountState loaded = loadStates(Set.of(state.getAccountId())).get(0);
+        state.setBalance(loaded.getBalance());
+        state.setSpending(loaded.getSpending());
+        state.setStale(false);
+        log.warn("Состояние горячего счета {} перечитано из базы, баланс {}", state.getAccountId(), state.getBalance());
+    }
+
+    /**
+     * Возвращает горячему отправителю списанную сумму с комиссией. Выполняется потоком-владельцем отправителя.
+     */
+    private void refund(HotAccountState sender, JournalEntry entry, LocalDate today) {
+        sender.setBalance(sender.getBalance().add(entry.getAmount().add(entry.getFeeAmount())));
+        sender.getSpending().add(today, entry.getAmount().negate());
+    }
+
+    /**
+     * Считает по кольцу расходы за текущий день, календарный месяц и окно лимита счета.
+     */
+    private SpendCounters countersOf(SpendRing spending, Integer windowDays, LocalDate today) {
+        BigDecimal spentThisMonth = spending.sum(today.withDayOfMonth(1), today);
+        return new SpendCounters(spending.sum(today, today), spentThisMonth,
+                Objects.isNull(windowDays) ? spentThisMonth : spending.sum(today.minusDays(windowDays - 1), today));
+    }
+
+    /**
+     * Выполняет действие в потоке-владельце счета. Все изменения состояния горячего счета выполняются
+     * только так, поэтому им не нужны блокировки.
+     *
+     * @return Future с результатом действия
+     */
+    private <T> CompletableFuture<T> onOwner(UUID accountId, Supplier<T> action) {
+        ExecutorService worker = workers[Math.floorMod(accountId.hashCode(), workerCount)];
+        return CompletableFuture.supplyAsync(action, worker);
+    }
+
+    /**
+     * Ждет действие потока-владельца не дольше await-timeout-ms. Если ожидание истекло, а действие
+     * выполнится позже, его изменение откатывается в потоке-владельце через {@code undo}:
+     * запрос уже получил ошибку, и операция не должна остаться примененной в памяти.
+     */
+    private <T> T awaitOwner(UUID accountId, CompletableFuture<T> future, Consumer<T> undo) {
+        try {
+            return await(future);
+        } catch (RuntimeException e) {
+            // Если действие завершилось ошибкой, undo не вызывается
+            future.thenAccept(late -> onOwner(accountId, () -> {
+                undo.accept(late);
+                return null;
+            }));
+            throw e;
+        }
+    }
+
+    /**
+     * Ждет результат не дольше await-timeout-ms и пробрасывает исключение, которым он завершился.
+     * Ожидание ограничивается на копии future, поэтому исходное действие может завершиться и после таймаута.
+     *
+     * @throws IllegalStateException Если ожидание истекло; причина — {@link TimeoutException}, исход операции неизвестен
+     */
+    private <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.copy().orTimeout(awaitTimeoutMillis, TimeUnit.MILLISECONDS).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof TimeoutException timeout) {
+                throw new IllegalStateException("Движок горячих счетов не ответил за " + awaitTimeoutMillis + " мс", timeout);
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
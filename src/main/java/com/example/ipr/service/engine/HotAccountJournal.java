@@ -0,0 +1,357 @@
+package com.example.ipr.service.engine;
+
+import com.example.ipr.domain.CheckTransferResponse;
+import com.example.ipr.domain.LockedAccount;
+import com.example.ipr.domain.event.DepositCompletedEvent;
+import com.example.ipr.enums.OutboxEventType;
+import com.example.ipr.exceptions.BadRequestException;
+import com.example.ipr.exceptions.TransactionOutcome;
+import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.example.ipr.service.AccountSpendService;
+import com.example.ipr.service.DailySpendService;
+import com.example.ipr.service.IdempotencyService;
+import com.example.ipr.service.LimitService;
+import com.example.ipr.service.TransactionRecordService;
+import com.example.ipr.service.outbox.OutboxService;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Журнал отложенной записи движка горячих счетов.
+ * Единственный поток журнала собирает накопившиеся записи в группу и фиксирует их одной транзакцией:
+ * холодные счета группы блокируются одним запросом, проводки вставляются пачкой,
+ * а изменения балансов горячих счетов сворачиваются в одно обновление на счет.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+class HotAccountJournal {
+
+    private final AccountRepository accountRepository;
+    private final TransactionRecordService transactionRecordService;
+    private final DailySpendService dailySpendService;
+    private final LimitService limitService;
+    private final AccountSpendService accountSpendService;
+    private final OutboxService outboxService;
+    private final IdempotencyService idempotencyService;
+    private final PlatformTransactionManager transactionManager;
+
+    private final BlockingQueue<JournalEntry> queue = new LinkedBlockingQueue<>();
+
+    @Value("${ipr.hot-accounts.journal.batch-size}")
+    private int batchSize;
+
+    @Value("${ipr.hot-accounts.journal.max-wait-ms}")
+    private long maxWaitMillis;
+
+    private TransactionTemplate transactionTemplate;
+    private Thread journalThread;
+    private volatile boolean running;
+
+    /**
+     * Запускает поток журнала. Вызывается движком, только если он включен.
+     */
+    void start() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        running = true;
+        journalThread = new Thread(this::run, "hot-account-journal");
+        journalThread.start();
+    }
+
+    /**
+     * Останавливает поток журнала, дописав уже принятые записи. Записи, которые поток не успел
+     * зафиксировать, завершаются ошибкой.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (Objects.isNull(journalThread)) {
+            return;
+        }
+        synchronized (this) {
+            running = false;
+        }
+        journalThread.join();
+        failPending(new IllegalStateException("Журнал горячих счетов остановлен"));
+    }
+
+    /**
+     * Добавляет запись в журнал.
+     *
+     * @param entry Запись журнала
+     * @return Future, завершающийся после фиксации группы, в которую попала запись;
+     * если журнал остановлен, future уже завершен ошибкой
+     */
+    synchronized CompletableFuture<Void> append(JournalEntry entry) {
+        if (!running) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Журнал горячих счетов остановлен"));
+        }
+        queue.add(entry);
+        return entry.getCommitted();
+    }
+
+    /**
+     * Цикл потока журнала: собирает группы и фиксирует их, пока журнал запущен и в очереди есть записи.
+     * Если поток все же завершается из-за ошибки, журнал перестает принимать записи,
+     * а ожидающие записи завершаются ошибкой.
+     */
+    private void run() {
+        List<JournalEntry> group = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    JournalEntry first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (Objects.isNull(first)) {
+                        continue;
+                    }
+                    group.add(first);
+                    collectGroup(group);
+                    commit(group);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    fail(group, new IllegalStateException("Поток журнала горячих счетов прерван", e));
+                    return;
+                } finally {
+                    group.clear();
+                }
+            }
+        } catch (RuntimeException | Error e) {
+            log.error("Поток журнала горячих счетов остановлен ошибкой", e);
+            throw e;
+        } finally {
+            synchronized (this) {
+                running = false;
+            }
+            failPending(new IllegalStateException("Журнал горячих счетов остановлен"));
+        }
+    }
+
+    /**
+     * Добирает в группу записи, пришедшие в течение max-wait-ms после первой, но не больше batch-size.
+     */
+    private void collectGroup(List<JournalEntry> group) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        while (group.size() < batchSize) {
+            queue.drainTo(group, batchSize - group.size());
+            long remaining = deadline - System.nanoTime();
+            if (group.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            JournalEntry next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (Objects.isNull(next)) {
+                return;
+            }
+            group.add(next);
+        }
+    }
+
+    /**
+     * Фиксирует группу одной транзакцией и завершает future ее записей. Если группа из нескольких записей
+     * точно откатилась, каждая запись фиксируется отдельно, чтобы одна ошибочная запись или сбой одного
+     * обновления не отклоняли остальные. При неизвестном исходе группа повторно не пишется:
+     * она могла зафиксироваться, и все ее записи завершаются этой ошибкой.
+     */
+    private void commit(List<JournalEntry> group) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> write(group));
+        } catch (RuntimeException e) {
+            if (group.size() > 1 && !TransactionOutcome.isUnknown(e)) {
+                log.warn("Группа журнала из {} записей откатилась, записи фиксируются по одной", group.size(), e);
+                group.forEach(entry -> commit(List.of(entry)));
+                return;
+            }
+            log.error("Не удалось зафиксировать группу журнала из {} записей", group.size(), e);
+            fail(group, e);
+            return;
+        } catch (Error e) {
+            // Транзакция откатывается и при Error; поток журнала продолжает работу
+            log.error("Не удалось зафиксировать группу журнала из {} записей", group.size(), e);
+            fail(group, new IllegalStateException("Ошибка при фиксации группы журнала", e));
+            return;
+        }
+
+        log.debug("Зафиксирована группа журнала из {} записей", group.size());
+        group.forEach(entry -> {
+            if (Objects.isNull(entry.getRejection())) {
+                entry.getCommitted().complete(null);
+            } else {
+                entry.getCommitted().completeExceptionally(new BadRequestException(entry.getRejection()));
+            }
+        });
+    }
+
+    /**
+     * Записывает группу в текущей транзакции: блокирует холодные счета группы одним запросом, применяет
+     * пополнения и переводы, затем одним обновлением на счет записывает расходы, пополнения и балансы горячих счетов.
+     * Перевод, не прошедший проверку холодной стороны, отмечается отказом и не мешает остальным записям.
+     */
+    private void write(List<JournalEntry> group) {
+        LocalDate period = accountSpendService.getCurrentPeriod();
+
+        Set<UUID> coldAccountIds = new HashSet<>();
+        group.stream().filter(entry -> entry.getType() == JournalEntry.Type.TRANSFER).forEach(entry -> {
+            if (!entry.isSenderHot()) {
+                coldAccountIds.add(entry.getSenderAccountId());
+            }
+            if (!entry.isReceiverHot()) {
+                coldAccountIds.add(entry.getReceiverAccountId());
+            }
+        });
+        Map<UUID, LockedAccount> coldAccounts = coldAccountIds.isEmpty() ? Map.of()
+                : accountRepository.lockForTransfer(coldAccountIds, period, LocalDate.now()).stream()
+                .collect(Collectors.toMap(locked -> locked.getAccount().getId(), Function.identity()));
+
+        Map<UUID, BigDecimal> hotBalanceDeltas = new HashMap<>();
+        Map<UUID, BigDecimal> spentByAccount = new HashMap<>();
+        Map<UUID, BigDecimal> depositedByAccount = new HashMap<>();
+        Map<UUID, Integer> depositCurrencies = new HashMap<>();
+
+        for (JournalEntry entry : group) {
+            entry.setRejection(null);
+            if (entry.getType() == JournalEntry.Type.DEPOSIT) {
+                hotBalanceDeltas.merge(entry.getReceiverAccountId(), entry.getAmount(), BigDecimal::add);
+                depositedByAccount.merge(entry.getReceiverAccountId(), entry.getAmount(), BigDecimal::add);
+                depositCurrencies.put(entry.getReceiverAccountId(), entry.getCurrencyId());
+                outboxService.append(OutboxEventType.DEPOSIT, entry.getReceiverAccountId(), new DepositCompletedEvent(
+                        entry.getReceiverAccountId(), entry.getAmount(), entry.getCurrencyId(), LocalDateTime.now()));
+                storeResult(entry);
+                continue;
+            }
+            try {
+                writeTransfer(entry, coldAccounts, hotBalanceDeltas, spentByAccount);
+            } catch (BadRequestException e) {
+                entry.setRejection(e.getMessage());
+            }
+            storeResult(entry);
+        }
+
+        spentByAccount.forEach((accountId, spent) -> accountSpendService.registerSpending(accountId, period, spent));
+        depositedByAccount.forEach((accountId, deposited) ->
+                dailySpendService.registerDeposit(accountId, depositCurrencies.get(accountId), deposited));
+        hotBalanceDeltas.forEach(accountRepository::addToBalance);
+    }
+
+    /**
+     * Применяет перевод группы. Горячая сторона уже проверена и списана в памяти движка,
+     * холодная сторона проверяется здесь по заблокированной строке счета.
+     */
+    private void writeTransfer(JournalEntry entry, Map<UUID, LockedAccount> coldAccounts, Map<UUID, BigDecimal> hotBalanceDeltas,
+                               Map<UUID, BigDecimal> spentByAccount) {
+        BigDecimal amount = entry.getAmount();
+        LockedAccount coldSender = null;
+        LockedAccount coldReceiver = null;
+
+        if (!entry.isSenderHot()) {
+            coldSender = coldAccounts.get(entry.getSenderAccountId());
+            if (Objects.isNull(coldSender)) {
+                throw new BadRequestException("Счет отправителя не найден");
+            }
+            if (!coldSender.getAccount().getUserId().equals(entry.getSenderUserId())) {
+                throw new BadRequestException("Вы не владеете этим счетом");
+            }
+            checkCurrency(coldSender.getAccount(), entry);
+
+            CheckTransferResponse checkResponse = limitService.evaluateTransferLimit(
+                    limitService.getPolicy(coldSender.getAccount()), amount, coldSender.getCounters());
+            BigDecimal feeAmount = checkResponse.isRequiresFee() ? checkResponse.getFeeAmount() : BigDecimal.ZERO;
+            if (coldSender.getAccount().getBalance().compareTo(amount.add(feeAmount)) < 0) {
+                throw new BadRequestException("Недостаточно средств на счету!");
+            }
+            entry.setFeeAmount(feeAmount);
+        }
+
+        if (!entry.isReceiverHot()) {
+            coldReceiver = coldAccounts.get(entry.getReceiverAccountId());
+            if (Objects.isNull(coldReceiver)) {
+                throw new BadRequestException("Счет получателя не найден");
+            }
+            checkCurrency(coldReceiver.getAccount(), entry);
+        }
+
+        BigDecimal debit = amount.add(entry.getFeeAmount());
+        if (Objects.isNull(coldSender)) {
+            hotBalanceDeltas.merge(entry.getSenderAccountId(), debit.negate(), BigDecimal::add);
+        } else {
+            AccountEntity senderAccount = coldSender.getAccount();
+            senderAccount.setBalance(senderAccount.getBalance().subtract(debit));
+            coldSender.getCounters().add(amount);
+        }
+        if (Objects.isNull(coldReceiver)) {
+            hotBalanceDeltas.merge(entry.getReceiverAccountId(), amount, BigDecimal::add);
+        } else {
+            AccountEntity receiverAccount = coldReceiver.getAccount();
+            receiverAccount.setBalance(receiverAccount.getBalance().add(amount));
+        }
+        spentByAccount.merge(entry.getSenderAccountId(), amount, BigDecimal::add);
+
+        transactionRecordService.recordTransfer(entry.getSenderAccountId(), entry.getReceiverAccountId(), amount,
+                entry.getFeeAmount(), entry.getCurrencyId());
+    }
+
+    /**
+     * Завершает ошибкой записи, которые остались в очереди после остановки потока журнала.
+     */
+    private void failPending(RuntimeException error) {
+        List<JournalEntry> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        if (!pending.isEmpty()) {
+            log.error("Записи журнала горячих счетов не зафиксированы: {}", pending.size());
+            fail(pending, error);
+        }
+    }
+
+    /**
+     * Завершает future записей ошибкой; уже завершенные future не меняются.
+     */
+    private void fail(List<JournalEntry> entries, Throwable error) {
+        entries.forEach(entry -> entry.getCommitted().completeExceptionally(error));
+    }
+
+    /**
+     * Сохраняет результат идемпотентного запроса записи в транзакции группы: ответ или отказ в переводе.
+     */
+    private void storeResult(JournalEntry entry) {
+        if (Objects.isNull(entry.getIdempotentRequest())) {
+            return;
+        }
+        if (Objects.isNull(entry.getRejection())) {
+            idempotencyService.complete(entry.getIdempotentRequest(), entry.getResponse());
+        } else {
+            idempotencyService.reject(entry.getIdempotentRequest(), entry.getRejection());
+        }
+    }
+
+    /**
+     * Проверяет, что валюта холодного счета совпадает с валютой горячей стороны записи.
+     *
+     * @throws BadRequestException Если валюты различаются
+     */
+    private void checkCurrency(AccountEntity coldAccount, JournalEntry entry) {
+        if (!coldAccount.getCurrencyId().equals(entry.getCurrencyId())) {
+            throw new BadRequestException("Перевод возможен только между счетами с одинаковой валютой");
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.ipr.service.engine;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Состояние горячего счета в памяти движка.
+ * Изменяемые поля читает и изменяет только поток-владелец счета, неизменяемые доступны из любого потока.
+ */
+@Getter
+@Setter
+class HotAccountState {
+
+    private final UUID accountId;
+    private final UUID userId;
+    private final Integer currencyId;
+    private final LocalDateTime createdAt;
+    /**
+     * Расходы счета по дням; из них считаются расходы за день, календарный месяц и скользящее окно лимита.
+     */
+    private SpendRing spending;
+    private BigDecimal balance;
+    /**
+     * Число операций счета, записанных в журнал, но еще не зафиксированных или не отклоненных.
+     */
+    private int pending;
+    /**
+     * Исход одной из операций счета неизвестен: состояние в памяти может расходиться с базой
+     * и перечитывается из нее перед следующей операцией.
+     */
+    private boolean stale;
+
+    HotAccountState(UUID accountId, UUID userId, Integer currencyId, LocalDateTime createdAt, SpendRing spending,
+                    BigDecimal balance) {
+        this.accountId = accountId;
+        this.userId = userId;
+        this.currencyId = currencyId;
+        this.createdAt = createdAt;
+        this.spending = spending;
+        this.balance = balance;
+    }
+
+    /**
+     * Учитывает операцию, которая будет записана в журнал.
+     */
+    void begin() {
+        pending++;
+    }
+
+    /**
+     * Снимает учет операции после ее фиксации или отказа.
+     */
+    void settle() {
+        pending--;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.ipr.service.engine;
+
+import com.example.ipr.domain.IdempotentRequest;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Запись журнала отложенной записи: перевод или пополнение, которое нужно зафиксировать в базе данных.
+ */
+@Getter
+@Setter
+class JournalEntry {
+
+    enum Type {
+        TRANSFER,
+        DEPOSIT
+    }
+
+    private final Type type;
+    private final UUID senderUserId;
+    private final UUID senderAccountId;
+    private final UUID receiverAccountId;
+    private final BigDecimal amount;
+    /**
+     * Валюта горячей стороны операции; холодная сторона сверяется с ней при записи журнала.
+     */
+    private final Integer currencyId;
+    private final boolean senderHot;
+    private final boolean receiverHot;
+    private final CompletableFuture<Void> committed = new CompletableFuture<>();
+    private BigDecimal feeAmount;
+    private String rejection;
+    /**
+     * Ключ идемпотентного запроса, результат которого сохраняется в транзакции группы, или null.
+     */
+    private IdempotentRequest idempotentRequest;
+    /**
+     * Ответ операции, сохраняемый по ключу идемпотентности.
+     */
+    private Object response;
+
+    private JournalEntry(Type type, UUID senderUserId, UUID senderAccountId, UUID receiverAccountId, BigDecimal amount,
+                         BigDecimal feeAmount, Integer currencyId, boolean senderHot, boolean receiverHot) {
+        this.type = type;
+        this.senderUserId = senderUserId;
+        this.senderAccountId = senderAccountId;
+        this.receiverAccountId = receiverAccountId;
+        this.amount = amount;
+        this.feeAmount = feeAmount;
+        this.currencyId = currencyId;
+        this.senderHot = senderHot;
+        this.receiverHot = receiverHot;
+    }
+
+    static JournalEntry transfer(UUID senderUserId, UUID senderAccountId, UUID receiverAccountId, BigDecimal amount,
+                                 BigDecimal feeAmount, Integer currencyId, boolean senderHot, boolean receiverHot) {
+        return new JournalEntry(Type.TRANSFER, senderUserId, senderAccountId, receiverAccountId, amount,
+                feeAmount, currencyId, senderHot, receiverHot);
+    }
+
+    static JournalEntry deposit(UUID accountId, BigDecimal amount, Integer currencyId) {
+        return new JournalEntry(Type.DEPOSIT, null, null, accountId, amount,
+                BigDecimal.ZERO, currencyId, false, true);
+    }
+}
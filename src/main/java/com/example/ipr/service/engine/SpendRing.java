@@ -0,0 +1,58 @@
+package com.example.ipr.service.engine;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Objects;
+
+/**
+ * Расходы счета по дням в кольце фиксированного размера.
+ * Ячейка дня выбирается по номеру дня по модулю размера кольца и помнит, к какому дню относится ее сумма:
+ * ячейка ушедшего из кольца дня обнуляется при первой записи нового дня. Сумма за окно читает
+ * не больше одной ячейки на день окна. Не потокобезопасно: используется только потоком-владельцем счета.
+ */
+class SpendRing {
+
+    private final LocalDate[] days;
+    private final BigDecimal[] amounts;
+
+    SpendRing(int size) {
+        this.days = new LocalDate[size];
+        this.amounts = new BigDecimal[size];
+    }
+
+    /**
+     * Добавляет сумму к расходам дня. Отрицательная сумма отменяет ранее добавленный расход.
+     */
+    void add(LocalDate day, BigDecimal amount) {
+        int slot = slot(day);
+        if (!day.equals(days[slot])) {
+            days[slot] = day;
+            amounts[slot] = BigDecimal.ZERO;
+        }
+        amounts[slot] = amounts[slot].add(amount);
+    }
+
+    /**
+     * Возвращает расходы за дни с from по to включительно.
+     *
+     * @throws IllegalArgumentException Если период длиннее кольца
+     */
+    BigDecimal sum(LocalDate from, LocalDate to) {
+        if (ChronoUnit.DAYS.between(from, to) >= days.length) {
+            throw new IllegalArgumentException("Период длиннее кольца расходов: " + from + " — " + to);
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            int slot = slot(day);
+            if (Objects.equals(day, days[slot])) {
+                total = total.add(amounts[slot]);
+            }
+        }
+        return total;
+    }
+
+    private int slot(LocalDate day) {
+        return (int) Math.floorMod(day.toEpochDay(), (long) days.length);
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.ipr.service.outbox;
+
+import com.example.ipr.domain.OutboxMessageDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Дописывает события в файл по одному JSON-объекту на строку.
+ * Пачка записывается одним вызовом и сбрасывается на диск до того, как считается доставленной.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ipr.outbox.sink", havingValue = "file", matchIfMissing = true)
+public class FileOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${ipr.outbox.file.path}")
+    private Path path;
+
+    @Override
+    public synchronized void deliver(List<OutboxMessageDto> messages) throws IOException {
+        ByteArrayOutputStream lines = new ByteArrayOutputStream();
+        for (OutboxMessageDto message : messages) {
+            lines.write(objectMapper.writeValueAsBytes(message));
+            lines.write('\n');
+        }
+
+        Path directory = path.toAbsolutePath().getParent();
+        if (Objects.nonNull(directory)) {
+            Files.createDirectories(directory);
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(lines.toByteArray());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+    }
+}
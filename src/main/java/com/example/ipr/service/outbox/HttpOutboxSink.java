@@ -0,0 +1,66 @@
+package com.example.ipr.service.outbox;
+
+import com.example.ipr.domain.OutboxMessageDto;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Отправляет пачку событий одним POST-запросом с JSON-массивом.
+ * Пачка считается доставленной только при ответе 2xx.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "ipr.outbox.sink", havingValue = "http")
+public class HttpOutboxSink implements OutboxSink {
+
+    private final ObjectMapper objectMapper;
+
+    @Value("${ipr.outbox.http.url}")
+    private URI url;
+
+    @Value("${ipr.outbox.http.timeout-ms}")
+    private long timeoutMillis;
+
+    private HttpClient httpClient;
+
+    @PostConstruct
+    public void init() {
+        httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMillis))
+                .build();
+    }
+
+    @Override
+    public void deliver(List<OutboxMessageDto> messages) throws IOException {
+        HttpRequest request = HttpRequest.newBuilder(url)
+                .timeout(Duration.ofMillis(timeoutMillis))
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(messages)))
+                .build();
+
+        HttpResponse<Void> response;
+        try {
+            response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Отправка событий прервана", e);
+        }
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("Получатель событий ответил статусом " + response.statusCode());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.ipr.service.outbox;
+
+import com.example.ipr.domain.OutboxMessageDto;
+import com.example.ipr.persist.entities.OutboxEventEntity;
+import com.example.ipr.persist.repository.OutboxEventRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Фоновая доставка событий из ipr.outbox_events получателю {@link OutboxSink}.
+ * Пачка самых старых событий захватывается на lease-ms короткой транзакцией, передается получателю вне транзакции
+ * и удаляется второй короткой транзакцией, так что медленный получатель не удерживает соединение и блокировки строк.
+ * Несколько экземпляров приложения разбирают таблицу параллельно, не получая одни и те же строки.
+ * При ошибке доставки захват снимается, и пачка остается в таблице; если экземпляр упал во время доставки,
+ * пачку заберет следующий опрос после истечения захвата.
+ * <p>
+ * Опрос выполняется в собственном потоке и не занимает общий планировщик задач.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OutboxRelay {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final OutboxSink outboxSink;
+    private final PlatformTransactionManager transactionManager;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+
+    @Value("${ipr.outbox.batch-size}")
+    private int batchSize;
+
+    @Value("${ipr.outbox.max-batches-per-run}")
+    private int maxBatchesPerRun;
+
+    @Value("${ipr.outbox.poll-interval-ms}")
+    private long pollIntervalMillis;
+
+    @Value("${ipr.outbox.lease-ms}")
+    private long leaseMillis;
+
+    private TransactionTemplate transactionTemplate;
+    private ScheduledExecutorService poller;
+    private Counter delivered;
+    private Counter failures;
+    private Timer deliveryTimer;
+
+    @PostConstruct
+    public void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        delivered = Counter.builder("ipr.outbox.delivered")
+                .description("События, доставленные получателю")
+                .register(meterRegistry);
+        failures = Counter.builder("ipr.outbox.failures")
+                .description("Неудачные попытки доставки пачки событий")
+                .register(meterRegistry);
+        deliveryTimer = Timer.builder("ipr.outbox.delivery")
+                .description("Время доставки одной пачки событий")
+                .register(meterRegistry);
+        Gauge.builder("ipr.outbox.lag", lagMillis, AtomicLong::get)
+                .description("Возраст самого старого недоставленного события при последнем опросе")
+                .baseUnit("milliseconds")
+                .register(meterRegistry);
+
+        poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "outbox-relay");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::relay, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Останавливает опрос после доставки текущей пачки.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        poller.shutdown();
+        poller.awaitTermination(30, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Доставляет пачки, пока таблица не опустеет или не будет достигнут предел пачек за один запуск.
+     * После ошибки доставки запуск прекращается до следующего опроса.
+     */
+    public void relay() {
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int relayed;
+            try {
+                relayed = relayBatch();
+            } catch (RuntimeException e) {
+                failures.increment();
+                log.warn("Не удалось доставить пачку событий: {}", e.getMessage());
+                return;
+            }
+            if (relayed < batchSize) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Захватывает, доставляет и удаляет одну пачку событий. Захват и удаление выполняются в отдельных
+     * коротких транзакциях, доставка — между ними без транзакции.
+     *
+     * @return Число доставленных событий
+     */
+    private int relayBatch() {
+        List<OutboxEventEntity> events = transactionTemplate.execute(status ->
+                outboxEventRepository.claimOldest(batchSize, leaseMillis));
+        if (events.isEmpty()) {
+            lagMillis.set(0);
+            return 0;
+        }
+        lagMillis.set(Duration.between(events.get(0).getCreatedAt(), LocalDateTime.now()).toMillis());
+
+        List<UUID> ids = events.stream().map(OutboxEventEntity::getId).toList();
+        List<OutboxMessageDto> messages = events.stream()
+                .map(event -> new OutboxMessageDto(event.getId(), event.getEventType(), event.getAggregateId(),
+                        event.getCreatedAt(), event.getPayload()))
+                .toList();
+        try {
+            deliveryTimer.record(() -> {
+                try {
+                    outboxSink.deliver(messages);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (RuntimeException e) {
+            releaseQuietly(ids);
+            throw e;
+        }
+
+        transactionTemplate.executeWithoutResult(status -> outboxEventRepository.deleteAllByIdInBatch(ids));
+        delivered.increment(events.size());
+        return events.size();
+    }
+
+    /**
+     * Снимает захват с недоставленной пачки. Если снять не удалось, пачка будет взята после истечения захвата.
+     */
+    private void releaseQuietly(List<UUID> ids) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> outboxEventRepository.release(ids));
+        } catch (RuntimeException e) {
+            log.warn("Не удалось снять захват с пачки событий: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.ipr.service.outbox;
+
+import com.example.ipr.enums.OutboxEventType;
+import com.example.ipr.persist.entities.OutboxEventEntity;
+import com.example.ipr.persist.repository.OutboxEventRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Запись событий для внешних сервисов в ipr.outbox_events.
+ * Событие сохраняется в той же транзакции, что и операция, поэтому оно появляется тогда и только тогда,
+ * когда операция зафиксирована; доставкой занимается {@link OutboxRelay} вне транзакции операции.
+ */
+@Service
+@RequiredArgsConstructor
+public class OutboxService {
+
+    private final OutboxEventRepository outboxEventRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Добавляет событие в текущую транзакцию. Строка вставляется при сбросе контекста персистентности
+     * вместе с остальными вставками операции.
+     *
+     * @param type        Тип события
+     * @param aggregateId UUID счета, к которому относится событие
+     * @param payload     Содержимое события, сериализуется в JSON
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void append(OutboxEventType type, UUID aggregateId, Object payload) {
+        outboxEventRepository.save(new OutboxEventEntity(type, aggregateId, toJson(payload), LocalDateTime.now()));
+    }
+
+    private String toJson(Object payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Не удалось сериализовать событие", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.ipr.service.outbox;
+
+import com.example.ipr.domain.OutboxMessageDto;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Получатель событий из ipr.outbox_events. Реализация выбирается параметром ipr.outbox.sink.
+ * Доставка выполняется не менее одного раза: если пачка принята, но ее удаление из таблицы не зафиксировано,
+ * пачка будет доставлена повторно, поэтому получатель должен отбрасывать дубликаты по id события.
+ */
+public interface OutboxSink {
+
+    /**
+     * Доставляет пачку событий в порядке их записи.
+     *
+     * @param messages События пачки
+     * @throws IOException Если пачка не принята; события останутся в таблице и будут доставлены позже
+     */
+    void deliver(List<OutboxMessageDto> messages) throws IOException;
+}
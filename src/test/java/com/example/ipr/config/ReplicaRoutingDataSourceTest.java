@@ -0,0 +1,91 @@
+package com.example.ipr.config;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет выбор источника данных: read-only транзакции идут на реплику, прошедшую проверку отставания,
+ * а отстающая, недоступная или давно не проверенная реплика чтений не получает.
+ * Роль реплики играет основная база тестового окружения: ее отставание всегда равно нулю.
+ */
+@SpringBootTest
+class ReplicaRoutingDataSourceTest {
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primaryDataSource;
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clear();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToCheckedReplica() {
+        ReplicaRoutingDataSource routing = routing(List.of(primaryDataSource), 1000, 60_000);
+        routing.refreshReplicaLag();
+
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("primary");
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-0");
+        assertThat(ReplicaRoutingDataSource.onPrimary(routing::determineCurrentLookupKey)).isEqualTo("primary");
+    }
+
+    @Test
+    void readOnlyTransactionsGoToPrimaryBeforeFirstCheck() {
+        ReplicaRoutingDataSource routing = routing(List.of(primaryDataSource), 1000, 60_000);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("primary");
+    }
+
+    @Test
+    void laggingReplicaIsExcluded() {
+        // Нулевое отставание больше отрицательного порога, поэтому реплика считается отстающей
+        ReplicaRoutingDataSource routing = routing(List.of(primaryDataSource), -1, 60_000);
+        routing.refreshReplicaLag();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("primary");
+    }
+
+    @Test
+    void unreachableReplicaIsExcluded() {
+        DataSource unreachable = new DriverManagerDataSource("jdbc:postgresql://localhost:1/postgres", "postgres", "postgres");
+        ReplicaRoutingDataSource routing = routing(List.of(unreachable, primaryDataSource), 1000, 60_000);
+        routing.refreshReplicaLag();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        for (int i = 0; i < 4; i++) {
+            assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-1");
+        }
+    }
+
+    @Test
+    void replicaIsExcludedWhenLastCheckIsStale() throws InterruptedException {
+        ReplicaRoutingDataSource routing = routing(List.of(primaryDataSource), 1000, 200);
+        routing.refreshReplicaLag();
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("replica-0");
+        Thread.sleep(300);
+        assertThat(routing.determineCurrentLookupKey()).isEqualTo("primary");
+    }
+
+    /**
+     * Источник без потока проверки: тест вызывает проверку сам и не закрывает пулы, общие с контекстом.
+     */
+    private ReplicaRoutingDataSource routing(List<DataSource> replicas, long maxLagMillis, long staleMillis) {
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, maxLagMillis, 1000, staleMillis, 0);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.ipr.domain;
+
+import com.example.ipr.enums.LimitAction;
+import com.example.ipr.enums.LimitScope;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет компиляцию лимита и правил счета: порядок порогов, границы периодов и запреты.
+ */
+class LimitPolicyTest {
+
+    private static final SpendCounters NO_SPENDING = SpendCounters.empty();
+
+    @Test
+    void accountWithoutLimitAndRulesHasEmptyPolicy() {
+        LimitPolicy policy = LimitPolicy.compile(null, List.of());
+
+        assertThat(policy.isEmpty()).isTrue();
+        assertThat(policy.evaluate(new BigDecimal("1000000"), NO_SPENDING).isRequiresFee()).isFalse();
+    }
+
+    @Test
+    void accountLimitChargesFivePercentAboveItsWindow() {
+        LimitPolicy policy = LimitPolicy.compile(new AccountLimit(new BigDecimal("1000"), 7), List.of());
+        SpendCounters counters = new SpendCounters(BigDecimal.ZERO, new BigDecimal("5000"), new BigDecimal("900"));
+
+        assertThat(policy.getWindowDays()).isEqualTo(7);
+        assertThat(policy.evaluate(new BigDecimal("100"), counters).isRequiresFee()).isFalse();
+        CheckTransferResponse exceeded = policy.evaluate(new BigDecimal("101"), counters);
+        assertThat(exceeded.isRequiresFee()).isTrue();
+        assertThat(exceeded.getFeeAmount()).isEqualByComparingTo("5.05");
+    }
+
+    @Test
+    void thresholdIsExceededOnlyAboveLimitAmount() {
+        LimitPolicy policy = LimitPolicy.compile(null, List.of(fee(LimitScope.DAY, "500", "0.01")));
+        SpendCounters counters = new SpendCounters(new BigDecimal("400"), new BigDecimal("400"), new BigDecimal("400"));
+
+        assertThat(policy.evaluate(new BigDecimal("100"), counters).isRequiresFee()).isFalse();
+        assertThat(policy.evaluate(new BigDecimal("100.01"), counters).isRequiresFee()).isTrue();
+    }
+
+    @Test
+    void highestRateAmongExceededThresholdsAppliesRegardlessOfRuleOrder() {
+        LimitRuleDto low = fee(LimitScope.TRANSACTION, "100", "0.05");
+        LimitRuleDto middle = fee(LimitScope.TRANSACTION, "200", "0.01");
+        LimitRuleDto high = fee(LimitScope.TRANSACTION, "300", "0.02");
+        LimitPolicy policy = LimitPolicy.compile(null, List.of(high, low, middle));
+        LimitPolicy reversed = LimitPolicy.compile(null, List.of(middle, low, high));
+
+        // превышен только порог 100 со ставкой 5%
+        assertThat(policy.evaluate(new BigDecimal("150"), NO_SPENDING).getFeeAmount()).isEqualByComparingTo("7.50");
+        // превышены пороги 100 и 200: ставка 5% порога 100 выше ставки 1% порога 200 и остается в силе
+        assertThat(policy.evaluate(new BigDecimal("250"), NO_SPENDING).getFeeAmount()).isEqualByComparingTo("12.50");
+        assertThat(reversed.evaluate(new BigDecimal("250"), NO_SPENDING).getFeeAmount()).isEqualByComparingTo("12.50");
+        assertThat(policy.evaluate(new BigDecimal("100"), NO_SPENDING).isRequiresFee()).isFalse();
+    }
+
+    @Test
+    void highestRateAcrossScopesApplies() {
+        LimitPolicy policy = LimitPolicy.compile(null, List.of(
+                fee(LimitScope.DAY, "100", "0.01"),
+                fee(LimitScope.MONTH, "1000", "0.03")));
+        SpendCounters counters = new SpendCounters(new BigDecimal("100"), new BigDecimal("1000"), new BigDecimal("1000"));
+
+        assertThat(policy.evaluate(new BigDecimal("10"), counters).getFeeAmount()).isEqualByComparingTo("0.30");
+    }
+
+    @Test
+    void rejectRuleBlocksTransferEvenWhenFeeRulesAlsoMatch() {
+        LimitPolicy policy = LimitPolicy.compile(new AccountLimit(new BigDecimal("100"), null), List.of(
+                fee(LimitScope.DAY, "100", "0.10"),
+                reject(LimitScope.DAY, "2000"),
+                reject(LimitScope.DAY, "1000")));
+        SpendCounters counters = new SpendCounters(new BigDecimal("900"), new BigDecimal("900"), new BigDecimal("900"));
+
+        CheckTransferResponse allowed = policy.evaluate(new BigDecimal("100"), counters);
+        assertThat(allowed.isCanProceed()).isTrue();
+        assertThat(allowed.getFeeAmount()).isEqualByComparingTo("10.00");
+
+        // запрещает наименьший порог запрета, а не последний в списке
+        CheckTransferResponse rejected = policy.evaluate(new BigDecimal("100.01"), counters);
+        assertThat(rejected.isCanProceed()).isFalse();
+        assertThat(rejected.getFeeAmount()).isZero();
+    }
+
+    @Test
+    void rulesOfOtherScopesDoNotAffectTransactionScope() {
+        LimitPolicy policy = LimitPolicy.compile(null, List.of(
+                reject(LimitScope.TRANSACTION, "500"),
+                reject(LimitScope.MONTH, "10000")));
+        SpendCounters counters = new SpendCounters(new BigDecimal("9000"), new BigDecimal("9000"), new BigDecimal("9000"));
+
+        assertThat(policy.evaluate(new BigDecimal("500"), counters).isCanProceed()).isTrue();
+        assertThat(policy.evaluate(new BigDecimal("500.01"), NO_SPENDING).isCanProceed()).isFalse();
+        assertThat(policy.evaluate(new BigDecimal("400"), new SpendCounters(
+                BigDecimal.ZERO, new BigDecimal("9700"), BigDecimal.ZERO)).isCanProceed()).isFalse();
+    }
+
+    private static LimitRuleDto fee(LimitScope scope, String limitAmount, String feeRate) {
+        return new LimitRuleDto(scope, LimitAction.FEE, new BigDecimal(limitAmount), new BigDecimal(feeRate));
+    }
+
+    private static LimitRuleDto reject(LimitScope scope, String limitAmount) {
+        return new LimitRuleDto(scope, LimitAction.REJECT, new BigDecimal(limitAmount), null);
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.ipr.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнивает случайные UUID и UUID, упорядоченные по времени, как первичные ключи таблицы,
+ * в которую строки только добавляются: время вставки и размер индекса первичного ключа,
+ * а также скорость генерации в несколько потоков. Время только выводится в лог: проверяются размер индекса
+ * и свойства идентификаторов, сгенерированных конкурентно, — версия, вариант, возрастание и уникальность.
+ * <p>
+ * Запускается только явно: {@code ./gradlew test --tests '*UuidGeneratorBenchmarkTest' -Dipr.benchmark=true}.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "ipr.benchmark", matches = "true")
+class UuidGeneratorBenchmarkTest {
+
+    private static final int ROWS = 200_000;
+    private static final int BATCH_SIZE = 1_000;
+    private static final int THREADS = 8;
+    private static final int IDS_PER_THREAD = 1_000_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP TABLE IF EXISTS ipr.uuid_benchmark_random");
+        jdbcTemplate.execute("DROP TABLE IF EXISTS ipr.uuid_benchmark_time_ordered");
+    }
+
+    @Test
+    void timeOrderedKeysInsertFasterIntoSmallerIndex() {
+        InsertResult random = insert("ipr.uuid_benchmark_random", UUID::randomUUID);
+        InsertResult timeOrdered = insert("ipr.uuid_benchmark_time_ordered", TimeOrderedUuidGenerator::next);
+
+        log.info("Вставка {} строк: случайные UUID — {} мс, индекс {} КБ; UUID по времени — {} мс, индекс {} КБ",
+                ROWS, random.getMillis(), random.getIndexBytes() / 1024, timeOrdered.getMillis(), timeOrdered.getIndexBytes() / 1024);
+        assertThat(timeOrdered.getIndexBytes()).isLessThan(random.getIndexBytes());
+    }
+
+    @Test
+    void timeOrderedGenerationIsMonotonicAndUniqueAcrossThreads() throws Exception {
+        long randomMillis = generate(UUID::randomUUID);
+        long timeOrderedMillis = generate(TimeOrderedUuidGenerator::next);
+        log.info("Генерация {} UUID в {} потоков: случайные — {} мс, по времени — {} мс",
+                THREADS * IDS_PER_THREAD, THREADS, randomMillis, timeOrderedMillis);
+
+        // Старшие 64 бита — время и счетчик из общего AtomicLong, поэтому они уникальны и без случайной части
+        long[][] mostSigBits = new long[THREADS][];
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<long[]>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] generated = new long[IDS_PER_THREAD];
+                    UUID previous = null;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        UUID id = TimeOrderedUuidGenerator.next();
+                        assertThat(id.version()).isEqualTo(7);
+                        assertThat(id.variant()).isEqualTo(2);
+                        if (Objects.nonNull(previous)) {
+                            assertThat(id.compareTo(previous)).isPositive();
+                        }
+                        generated[i] = id.getMostSignificantBits();
+                        previous = id;
+                    }
+                    return generated;
+                }));
+            }
+            for (int t = 0; t < THREADS; t++) {
+                mostSigBits[t] = futures.get(t).get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        long[] all = Arrays.stream(mostSigBits).flatMapToLong(Arrays::stream).sorted().toArray();
+        assertThat(all).hasSize(THREADS * IDS_PER_THREAD);
+        for (int i = 1; i < all.length; i++) {
+            assertThat(all[i]).isNotEqualTo(all[i - 1]);
+        }
+    }
+
+    private InsertResult insert(String table, Supplier<UUID> ids) {
+        jdbcTemplate.execute("CREATE TABLE " + table + " (id UUID PRIMARY KEY, payload BIGINT NOT NULL)");
+
+        long start = System.nanoTime();
+        for (int offset = 0; offset < ROWS; offset += BATCH_SIZE) {
+            List<Object[]> batch = new ArrayList<>(BATCH_SIZE);
+            for (int i = 0; i < BATCH_SIZE; i++) {
+                batch.add(new Object[]{ids.get(), (long) offset + i});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO " + table + " (id, payload) VALUES (?, ?)", batch);
+        }
+        long millis = (System.nanoTime() - start) / 1_000_000;
+
+        Long indexBytes = jdbcTemplate.queryForObject(
+                "SELECT pg_relation_size(CAST(? AS regclass))", Long.class, table + "_pkey");
+        return new InsertResult(millis, indexBytes);
+    }
+
+    private long generate(Supplier<UUID> ids) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        ids.get();
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            return (System.nanoTime() - start) / 1_000_000;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class InsertResult {
+
+        private final long millis;
+        private final long indexBytes;
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.ipr.service;
+
+import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.entities.PassportDataEntity;
+import com.example.ipr.persist.entities.UserEntity;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.example.ipr.persist.repository.PassportDataRepository;
+import com.example.ipr.persist.repository.UserRepository;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Тестовые данные: клиент с паспортом и его счета. Телефон и почта клиента уникальны для каждого вызова,
+ * поэтому тесты не мешают друг другу. {@link #cleanUp()} удаляет все созданное в обратном порядке.
+ */
+public class AccountFixture {
+
+    private final PassportDataRepository passportDataRepository;
+    private final UserRepository userRepository;
+    private final AccountRepository accountRepository;
+
+    private final List<UUID> accountIds = new ArrayList<>();
+
+    @Getter
+    private PassportDataEntity passportData;
+
+    @Getter
+    private UserEntity user;
+
+    public AccountFixture(PassportDataRepository passportDataRepository, UserRepository userRepository,
+                          AccountRepository accountRepository) {
+        this.passportDataRepository = passportDataRepository;
+        this.userRepository = userRepository;
+        this.accountRepository = accountRepository;
+    }
+
+    /**
+     * Создает клиента с паспортом.
+     *
+     * @param emailPrefix Начало адреса почты клиента, по нему видно, какой тест создал запись
+     * @return Сохраненный клиент
+     */
+    public UserEntity createUser(String emailPrefix) {
+        passportData = new PassportDataEntity();
+        passportData.setIdentificationPassportNumber("1234567890");
+        passportData.setIssuanceDate(LocalDate.of(2020, 1, 1));
+        passportData.setExpiryDate(LocalDate.of(2030, 1, 1));
+        passportData.setBirthDate(LocalDate.of(1990, 1, 1));
+        passportData.setNationality("Russia");
+        passportDataRepository.save(passportData);
+
+        String suffix = String.valueOf(ThreadLocalRandom.current().nextLong(1_000_000_000L, 9_999_999_999L));
+        user = new UserEntity();
+        user.setFirstName("Ivan");
+        user.setLastName("Ivanov");
+        user.setMobilePhone("+7" + suffix);
+        user.setPassportDataId(passportData.getId());
+        user.setClientStatus(true);
+        user.setCountryOfResidenceId(1);
+        user.setEncodedPassword("password");
+        user.setEmail(emailPrefix + "-" + suffix + "@example.com");
+        return userRepository.save(user);
+    }
+
+    /**
+     * Создает рублевый счет клиента, созданного {@link #createUser}.
+     *
+     * @param balance Начальный баланс
+     * @return Сохраненный счет
+     */
+    public AccountEntity createAccount(BigDecimal balance) {
+        AccountEntity account = new AccountEntity();
+        account.setUserId(user.getId());
+        account.setCurrencyId(1);
+        account.setBalance(balance);
+        account.setCreatedAt(LocalDateTime.now());
+        account = accountRepository.save(account);
+        accountIds.add(account.getId());
+        return account;
+    }
+
+    /**
+     * Удаляет счета, клиента и паспорт.
+     */
+    public void cleanUp() {
+        accountRepository.deleteAllById(accountIds);
+        accountIds.clear();
+        if (Objects.nonNull(user)) {
+            userRepository.deleteById(user.getId());
+            user = null;
+        }
+        if (Objects.nonNull(passportData)) {
+            passportDataRepository.deleteById(passportData.getId());
+            passportData = null;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.example.ipr.service;
+
+import com.example.ipr.domain.ExpenseTransactionDto;
+import com.example.ipr.domain.TimeOrderedUuidGenerator;
+import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.entities.TransactionEntity;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.example.ipr.persist.repository.PassportDataRepository;
+import com.example.ipr.persist.repository.TransactionRepository;
+import com.example.ipr.persist.repository.UserRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Сравнивает чтение страницы истории операций через сущности с последующим копированием в DTO
+ * и проекцию запроса сразу в {@link ExpenseTransactionDto}: среднее время и объем памяти,
+ * выделенной потоком на одну страницу.
+ * <p>
+ * Запускается только явно: {@code ./gradlew test --tests '*TransactionHistoryBenchmarkTest' -Dipr.benchmark=true}.
+ */
+@Slf4j
+@SpringBootTest
+@EnabledIfSystemProperty(named = "ipr.benchmark", matches = "true")
+class TransactionHistoryBenchmarkTest {
+
+    private static final int ROWS = 20_000;
+    private static final int PAGE_SIZE = 500;
+    private static final int WARMUP = 50;
+    private static final int ITERATIONS = 200;
+
+    private static final String ENTITY_QUERY = "SELECT t FROM TransactionEntity t " +
+            "WHERE t.accountId = :accountId AND t.amount < 0 ORDER BY t.transactionDate DESC, t.id DESC";
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PassportDataRepository passportDataRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    private TransactionTemplate transactionTemplate;
+    private AccountFixture accounts;
+    private AccountEntity account;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        accounts = new AccountFixture(passportDataRepository, userRepository, accountRepository);
+        accounts.createUser("history");
+        account = accounts.createAccount(BigDecimal.ZERO);
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for (int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{TimeOrderedUuidGenerator.next(), account.getId(), new BigDecimal("-10.00"),
+                    Timestamp.valueOf(now.minusSeconds(i)), "Перевод на счет " + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO ipr.transactions (id, account_id, amount, currency_id, transaction_date, description, type) " +
+                "VALUES (?, ?, ?, 1, ?, ?, 'TRANSFER_OUT')", rows);
+    }
+
+    @AfterEach
+    void tearDown() {
+        accounts.cleanUp();
+    }
+
+    @Test
+    void projectionAllocatesLessPerPageThanEntities() {
+        Measurement entities = measure(() -> entityManager.createQuery(ENTITY_QUERY, TransactionEntity.class)
+                .setParameter("accountId", account.getId())
+                .setMaxResults(PAGE_SIZE)
+                .getResultList().stream()
+                .map(this::toExpenseTransactionDto)
+                .toList());
+        Measurement projection = measure(() ->
+                transactionRepository.findExpensesByAccountId(account.getId(), PageRequest.of(0, PAGE_SIZE)));
+
+        log.info("Страница из {} операций: сущности — {} мкс, {} КБ; проекция в DTO — {} мкс, {} КБ",
+                PAGE_SIZE, entities.getMicros(), entities.getAllocatedBytes() / 1024,
+                projection.getMicros(), projection.getAllocatedBytes() / 1024);
+        assertThat(projection.getAllocatedBytes()).isLessThan(entities.getAllocatedBytes());
+    }
+
+    private ExpenseTransactionDto toExpenseTransactionDto(TransactionEntity transaction) {
+        return new ExpenseTransactionDto(transaction.getId(), transaction.getAmount(), transaction.getCurrencyId(),
+                transaction.getTransactionDate(), transaction.getDescription());
+    }
+
+    /**
+     * Выполняет чтение страницы в отдельной транзакции и возвращает средние время и выделенную память на одну страницу.
+     */
+    private Measurement measure(Supplier<List<ExpenseTransactionDto>> page) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        for (int i = 0; i < WARMUP; i++) {
+            assertThat(transactionTemplate.execute(status -> page.get())).hasSize(PAGE_SIZE);
+        }
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            transactionTemplate.execute(status -> page.get());
+        }
+        long micros = (System.nanoTime() - start) / 1_000 / ITERATIONS;
+        long allocatedBytes = (threads.getThreadAllocatedBytes(threadId) - allocatedBefore) / ITERATIONS;
+        return new Measurement(micros, allocatedBytes);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class Measurement {
+
+        private final long micros;
+        private final long allocatedBytes;
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.ipr.service;
+
+import com.example.ipr.persist.entities.AccountEntity;
+import com.example.ipr.persist.entities.UserEntity;
+import com.example.ipr.persist.repository.AccountRepository;
+import com.example.ipr.persist.repository.PassportDataRepository;
+import com.example.ipr.persist.repository.UserRepository;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Проверяет, что операции со счетами отправляют в базу фиксированное число JDBC-выражений:
+ * вставки одного типа уходят одной пачкой, а зачисления выполняются одним атомарным обновлением.
+ * Доставка событий из outbox отложена, чтобы ее запросы не попадали в общую статистику.
+ */
+@SpringBootTest(properties = {
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "ipr.outbox.poll-interval-ms=3600000"
+})
+class TransactionServiceStatementCountTest {
+
+    @Autowired
+    private TransactionService transactionService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PassportDataRepository passportDataRepository;
+
+    @Autowired
+    private LimitCache limitCache;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private AccountFixture accounts;
+    private UserEntity user;
+    private AccountEntity senderAccount;
+    private AccountEntity receiverAccount;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+
+        accounts = new AccountFixture(passportDataRepository, userRepository, accountRepository);
+        user = accounts.createUser("statements");
+        senderAccount = accounts.createAccount(new BigDecimal("1000.00"));
+        receiverAccount = accounts.createAccount(BigDecimal.ZERO);
+        // правила лимитов читаются один раз на счет и дальше берутся из кэша
+        limitCache.getPolicy(senderAccount.getId());
+
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        accounts.cleanUp();
+    }
+
+    @Test
+    void transferSendsBalancesAndLedgerRowsAsBatches() {
+        transactionService.transfer(user.getId(), senderAccount.getId(), receiverAccount.getId(), new BigDecimal("100.00"));
+
+        // блокировка отправителя с расходами за периоды лимитов, резерв в счетчике расходов, обновление отправителя,
+        // атомарное зачисление получателю, пачка проводок, дневные итоги обоих счетов, событие outbox
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(7);
+        assertThat(statistics.getEntityUpdateCount()).isEqualTo(1);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(3);
+        assertThat(accountRepository.findById(receiverAccount.getId()).orElseThrow().getBalance())
+                .isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void depositUpdatesAccountWithSingleStatementAndWritesOutboxEvent() {
+        AccountEntity account = transactionService.deposit(user.getId(), receiverAccount.getId(), new BigDecimal("50.00"));
+
+        // зачисление вместе с дневными итогами, событие outbox
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+        assertThat(statistics.getEntityInsertCount()).isEqualTo(1);
+        assertThat(statistics.getEntityUpdateCount()).isZero();
+        assertThat(account.getBalance()).isEqualByComparingTo("50.00");
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.ipr.service.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Проверяет суммы кольца расходов на границах окна и при повторном использовании ячеек ушедших дней.
+ */
+class SpendRingTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2025, 2, 28);
+
+    @Test
+    void sumIncludesBothEndsOfPeriod() {
+        SpendRing ring = new SpendRing(7);
+        ring.add(TODAY.minusDays(7), new BigDecimal("1000"));
+        ring.add(TODAY.minusDays(6), new BigDecimal("10"));
+        ring.add(TODAY.minusDays(3), new BigDecimal("20"));
+        ring.add(TODAY, new BigDecimal("30"));
+
+        assertThat(ring.sum(TODAY.minusDays(6), TODAY)).isEqualByComparingTo("60");
+        assertThat(ring.sum(TODAY.minusDays(5), TODAY)).isEqualByComparingTo("50");
+        assertThat(ring.sum(TODAY, TODAY)).isEqualByComparingTo("30");
+    }
+
+    @Test
+    void dayLeavingRingDoesNotLeakIntoNewDayWithSameSlot() {
+        SpendRing ring = new SpendRing(7);
+        ring.add(TODAY.minusDays(7), new BigDecimal("1000"));
+
+        // ячейка дня 7 дней назад та же, что и у сегодняшнего дня, но ее сумма к сегодняшнему дню не относится
+        assertThat(ring.sum(TODAY, TODAY)).isZero();
+
+        ring.add(TODAY, new BigDecimal("5"));
+        assertThat(ring.sum(TODAY, TODAY)).isEqualByComparingTo("5");
+        assertThat(ring.sum(TODAY.minusDays(6), TODAY)).isEqualByComparingTo("5");
+    }
+
+    @Test
+    void negativeAmountCancelsEarlierSpending() {
+        SpendRing ring = new SpendRing(31);
+        ring.add(TODAY, new BigDecimal("100"));
+        ring.add(TODAY, new BigDecimal("-40"));
+
+        assertThat(ring.sum(TODAY.withDayOfMonth(1), TODAY)).isEqualByComparingTo("60");
+    }
+
+    @Test
+    void monthSumSpansWholeCalendarMonth() {
+        SpendRing ring = new SpendRing(31);
+        LocalDate monthStart = TODAY.withDayOfMonth(1);
+        ring.add(monthStart.minusDays(1), new BigDecimal("500"));
+        ring.add(monthStart, new BigDecimal("1"));
+        ring.add(TODAY, new BigDecimal("2"));
+
+        assertThat(ring.sum(monthStart, TODAY)).isEqualByComparingTo("3");
+    }
+
+    @Test
+    void periodLongerThanRingIsRejected() {
+        SpendRing ring = new SpendRing(7);
+
+        assertThat(ring.sum(TODAY.minusDays(6), TODAY)).isZero();
+        assertThatThrownBy(() -> ring.sum(TODAY.minusDays(7), TODAY))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}